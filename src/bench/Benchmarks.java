@@ -0,0 +1,39 @@
+package bench;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The {@code Benchmarks} class runs the JMH benchmarks of every stage: {@link DecodeBenchmark}, {@link ResizeBenchmark} and {@link EncodeBenchmark}.
+ * <p>It accepts the same arguments as JMH itself (i.e. "{@code Resize}" to only run the resize benchmarks, or "{@code -p size=4}"), and adds two defaults:
+ * <ul>
+ * 	<li>The "gc" profiler, which reports the allocation rate ("{@code gc.alloc.rate.norm}" is the number of bytes allocated by each operation).</li>
+ * 	<li>The results are written as JSON to "{@code src/out/bench/(date).json}", so that two runs may be compared. Use "{@code -rff}" to choose another file.</li>
+ * </ul>
+ * </p>
+ */
+public class Benchmarks {
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions cmd = new CommandLineOptions(args);
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd).addProfiler(GCProfiler.class);
+		if (!cmd.getResult().hasValue()) { // Keep the results of every run, by date
+			File dir = new File(main.Main.loc + "/src/out/bench");
+			dir.mkdirs();
+			File result = new File(dir, new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss").format(new Date()) + ".json");
+			options.result(result.getPath()).resultFormat(ResultFormatType.JSON);
+			System.out.println("Results will be written to " + result.getPath());
+		} else if (!cmd.getResultFormat().hasValue()) {
+			options.resultFormat(ResultFormatType.JSON);
+		}
+		new Runner(options.build()).run();
+	}
+}
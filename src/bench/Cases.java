@@ -0,0 +1,209 @@
+package bench;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.imageio.ImageIO;
+
+import main.Json;
+import main.Main;
+import main.Options;
+import main.Shards;
+
+/**
+ * The {@code Cases} class runs the whole program over small resourcepacks that it makes on the fly, one for each case that the program once got wrong,
+ * and fails if any of them is wrong again.
+ * <p>Each case writes its resourcepack into "{@code src/out/cases/(name)/pack}", runs the program on it exactly like "{@code java main.Main}" would (in this process),
+ * with its output in "{@code src/out/cases/(name)/out}", and then checks the output. The cases are:
+ * <ul>
+ * 	<li>"{@code banded mcmeta}" : a texture too large for {@link Main#memory_budget}, which is resized in bands, with a ".png.mcmeta" that must be copied next to it.</li>
+ * 	<li>"{@code width-only animation}" : an animated texture whose ".png.mcmeta" only gives the width of its frames, so each frame is as tall as the whole image.
+ * 	Read the way Minecraft reads it, the output must show the same frames in the same order.</li>
+ * </ul>
+ * </p>
+ * <p>Build it with "{@code mvn -P bench package}", then run "{@code java -cp target/benchmarks.jar bench.Cases}" from the root of the project.
+ * The program exits with status 1 if any case fails.</p>
+ */
+public class Cases {
+
+	/**
+	 * A single case: a resourcepack, the options to run the program with, and what the output must be.
+	 */
+	private static abstract class Case {
+		final String name;
+		final String[] options;
+
+		Case(String name, String... options) {
+			this.name = name;
+			this.options = options;
+		}
+
+		/**
+		 * Writes the resourcepack of this case.
+		 * @param pack The root of the resourcepack, which is empty.
+		 */
+		abstract void make(File pack) throws IOException;
+
+		/**
+		 * Checks the output of this case.
+		 * @param pack The root of the resourcepack.
+		 * @param out The root of the output.
+		 * @throws AssertionError If the output is wrong.
+		 */
+		abstract void check(File pack, File out) throws IOException;
+	}
+
+	private static final Case[] CASES = {
+		new Case("banded mcmeta", "misc=true", "size=256", "useScale=false", "memory_budget=16", "threads=1") {
+			void make(File pack) throws IOException {
+				BufferedImage img = new BufferedImage(2048, 2048, BufferedImage.TYPE_INT_ARGB); // 32 MB decoded, more than the whole budget
+				for (int y = 0; y < img.getHeight(); y++) {
+					for (int x = 0; x < img.getWidth(); x++) img.setRGB(x, y, 0xFF000000 | (x/8) << 16 | (y/8) << 8 | ((x + y)/16 & 0xFF));
+				}
+				write(pack, "assets/minecraft/textures/misc/large.png", img);
+				write(pack, "assets/minecraft/textures/misc/large.png.mcmeta", "{\"texture\": {\"blur\": true}}");
+			}
+
+			void check(File pack, File out) throws IOException {
+				checkSize(out, "assets/minecraft/textures/misc/large.png", 256, 256);
+				checkSame(pack, out, "assets/minecraft/textures/misc/large.png.mcmeta");
+			}
+		},
+		new Case("width-only animation", "block=true", "size=4", "useScale=true") {
+			void make(File pack) throws IOException {
+				BufferedImage img = new BufferedImage(32, 64, BufferedImage.TYPE_INT_ARGB); // Two frames of 16x64 side by side, not four of 16x32
+				for (int y = 0; y < img.getHeight(); y++) {
+					for (int x = 0; x < img.getWidth(); x++) img.setRGB(x, y, x < 16 ? 0xFFFF0000 : 0xFF0000FF);
+				}
+				write(pack, "assets/minecraft/textures/block/strip.png", img);
+				write(pack, "assets/minecraft/textures/block/strip.png.mcmeta", "{\"animation\": {\"width\": 16}}");
+			}
+
+			void check(File pack, File out) throws IOException {
+				List<Integer> shown = frames(out, "assets/minecraft/textures/block/strip.png");
+				if (!shown.equals(Arrays.asList(0xFFFF0000, 0xFF0000FF))) throw new AssertionError("The frames shown are " + hex(shown) + ", not [ffff0000, ff0000ff].");
+			}
+		},
+	};
+
+	public static void main(String[] args) throws Exception {
+		List<String> failures = new ArrayList<String>();
+		for (Case c : CASES) {
+			System.out.println("== " + c.name);
+			File dir = new File(Main.loc + "/src/out/cases/" + c.name);
+			File pack = new File(dir, "pack");
+			Shards.delete(dir); // Every file is written again
+			try {
+				c.make(pack);
+				write(pack, "pack.mcmeta", "{\"pack\": {\"pack_format\": 4, \"description\": \"" + c.name + "\"}}");
+				run(c, pack);
+				c.check(pack, new File(dir, "out"));
+				System.out.println("  passed");
+			} catch (Exception | AssertionError e) {
+				e.printStackTrace(System.out);
+				failures.add(c.name + ": " + e);
+			}
+		}
+
+		if (failures.isEmpty()) {
+			System.out.println("Every case passed.");
+			return;
+		}
+		for (String f : failures) System.out.println("FAILED " + f);
+		System.exit(1);
+	}
+
+	/**
+	 * Runs the program over the resourcepack of a case.
+	 */
+	private static void run(Case c, File pack) throws IOException {
+		List<String> args = new ArrayList<String>(Arrays.asList(c.options));
+		args.addAll(Arrays.asList("pack=" + pack.getAbsolutePath(), "sizes=", "name_out=cases/" + c.name + "/out", "incremental=false", "zip_out=false", "report=false"));
+		Options o = Main.parseArgs(args.toArray(new String[0]));
+		ExecutorService pool = Executors.newCachedThreadPool();
+		try {
+			Main.run(o, pool);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Checks that an output image exists, and has the given size.
+	 */
+	private static void checkSize(File out, String path, int w, int h) throws IOException {
+		File f = new File(out, path);
+		if (!f.isFile()) throw new AssertionError(path + " was not written.");
+		BufferedImage img = ImageIO.read(f);
+		if (img == null || img.getWidth() != w || img.getHeight() != h) {
+			throw new AssertionError(path + " is " + (img == null ? "not an image" : img.getWidth() + "x" + img.getHeight()) + ", not " + w + "x" + h + ".");
+		}
+	}
+
+	/**
+	 * Checks that an output file exists, and is the same as the source file.
+	 */
+	private static void checkSame(File pack, File out, String path) throws IOException {
+		File f = new File(out, path);
+		if (!f.isFile()) throw new AssertionError(path + " was not written.");
+		if (!Arrays.equals(Files.readAllBytes(f.toPath()), Files.readAllBytes(new File(pack, path).toPath()))) throw new AssertionError(path + " is not the same as the source.");
+	}
+
+	/**
+	 * Reads an animated texture the way Minecraft does: frames are "{@code width}" by "{@code height}", and if only one of them is given, the other one is the whole
+	 * width or height of the image. If neither is, frames are square, as large as the shorter side. Frames are numbered row by row, and shown in the order of "{@code frames}".
+	 * @return The color of the center of each frame, in the order they are shown.
+	 */
+	private static List<Integer> frames(File out, String path) throws IOException {
+		File f = new File(out, path);
+		if (!f.isFile() || !new File(out, path + ".mcmeta").isFile()) throw new AssertionError(path + " or its .mcmeta was not written.");
+		BufferedImage img = ImageIO.read(f);
+		Map<?, ?> animation = (Map<?, ?>) ((Map<?, ?>) Json.parse(new String(Files.readAllBytes(new File(out, path + ".mcmeta").toPath()), StandardCharsets.UTF_8))).get("animation");
+		int w = img.getWidth(), h = img.getHeight();
+		int fw = animation.containsKey("width") ? ((Number) animation.get("width")).intValue() : -1;
+		int fh = animation.containsKey("height") ? ((Number) animation.get("height")).intValue() : -1;
+		if (fw < 0 && fh < 0) fw = fh = Math.min(w, h);
+		else if (fw < 0) fw = w;
+		else if (fh < 0) fh = h;
+		int cols = w/fw, count = cols*(h/fh);
+		List<Integer> order = new ArrayList<Integer>();
+		if (animation.get("frames") instanceof List) {
+			for (Object o : (List<?>) animation.get("frames")) order.add(((Number) (o instanceof Map ? ((Map<?, ?>) o).get("index") : o)).intValue());
+		} else {
+			for (int i = 0; i < count; i++) order.add(i);
+		}
+		List<Integer> colors = new ArrayList<Integer>();
+		for (int i : order) {
+			if (i < 0 || i >= count) throw new AssertionError(path + " shows frame " + i + ", but only has " + count + " frame(s) of " + fw + "x" + fh + ".");
+			colors.add(img.getRGB((i % cols)*fw + fw/2, (i / cols)*fh + fh/2));
+		}
+		return colors;
+	}
+
+	private static List<String> hex(List<Integer> colors) {
+		List<String> s = new ArrayList<String>();
+		for (int c : colors) s.add(Integer.toHexString(c));
+		return s;
+	}
+
+	private static void write(File pack, String path, BufferedImage img) throws IOException {
+		File f = new File(pack, path);
+		f.getParentFile().mkdirs();
+		ImageIO.write(img, "png", f);
+	}
+
+	private static void write(File pack, String path, String text) throws IOException {
+		File f = new File(pack, path);
+		f.getParentFile().mkdirs();
+		Files.write(f.toPath(), text.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,54 @@
+package bench;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+
+import main.Tiler;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The {@code DecodeBenchmark} measures the decode stage of the {@link main.Pipeline}: {@link ImageIO#read(java.io.InputStream)} of a ".png" that is already in memory.
+ * <p>{@link #subsampled4x()} decodes only every 4th pixel in each direction, the way the decode stage does when a 4x downscale only picks single pixels
+ * (i.e. "{@code filter=nearest size=4}"; see {@link main.Resampler#subsampleOffset(main.Resampler.Filter, boolean, int, int)}).</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+
+	@Param({"block/dirt", "block/oak_leaves", "item/diamond_sword", "block/kelp", "entity/pig/pig", "gui/widgets"})
+	public String texture;
+
+	private byte[] data;
+
+	@Setup
+	public void setup() throws IOException {
+		ImageIO.setUseCache(false); // The same as Main
+		data = Textures.read(texture);
+	}
+
+	@Benchmark
+	public BufferedImage imageIORead() throws IOException {
+		return ImageIO.read(new ByteArrayInputStream(data));
+	}
+
+	@Benchmark
+	public BufferedImage subsampled4x() throws IOException {
+		ImageReader reader = Tiler.reader(data);
+		try {
+			ImageReadParam param = reader.getDefaultReadParam();
+			param.setSourceSubsampling(4, 4, 2, 2);
+			return reader.read(0, param);
+		} finally {
+			reader.dispose();
+		}
+	}
+}
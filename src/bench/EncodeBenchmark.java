@@ -0,0 +1,57 @@
+package bench;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import org.openjdk.jmh.annotations.*;
+
+import main.Main;
+import main.PngEncoder;
+import main.Target;
+
+/**
+ * The {@code EncodeBenchmark} measures the encode stage of the {@link main.Pipeline}: the {@link PngEncoder} that is used to write every image,
+ * and {@link ImageIO#write(java.awt.image.RenderedImage, String, java.io.OutputStream)} for comparison.
+ * <p>Each texture is encoded after being resized with {@link Main#useScale}, the same as in the output resourcepack.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncodeBenchmark {
+
+	@Param({"block/dirt", "block/oak_leaves", "item/diamond_sword", "block/kelp", "entity/pig/pig", "gui/widgets"})
+	public String texture;
+
+	@Param({"4", "16"})
+	public short size;
+
+	private BufferedImage image;
+	private PngEncoder encoder;
+
+	@Setup
+	public void setup() throws IOException {
+		ImageIO.setUseCache(false); // The same as Main
+		BufferedImage source = Textures.decode(texture);
+		Dimension d = Target.outputSize(source.getWidth(), source.getHeight(), size, true);
+		image = Main.resizeImage(source, d.width, d.height);
+		encoder = new PngEncoder(Main.png_level);
+	}
+
+	@Benchmark
+	public byte[] pngEncoder() throws IOException {
+		return encoder.encode(image);
+	}
+
+	@Benchmark
+	public byte[] imageIOWrite() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", out);
+		return out.toByteArray();
+	}
+}
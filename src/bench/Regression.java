@@ -0,0 +1,421 @@
+package bench;
+
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.imageio.ImageIO;
+
+import main.Json;
+import main.Main;
+import main.Options;
+import main.RunReport;
+import main.Shards;
+
+/**
+ * The {@code Regression} class runs the whole program over the "Default" resourcepack in {@code src/resources}, once for each reference output in "{@code examples}",
+ * and fails if the output or the speed of the program has changed.
+ * <p>For each configuration, the program is run {@value #RUNS} times (see "{@code runs}"), each time in a new Java process, exactly like "{@code java main.Main}" would be.
+ * Of each run, it records the wall time, the files per second, the bytes written and the peak resident memory of the process ("{@code VmHWM}", only on Linux). Then:
+ * <ul>
+ * 	<li>Every image of the reference ".zip" is compared with the same image of the output. An image matches if it has the same size, and no channel of any pixel differs by more
+ * 	than "{@code tolerance}" (out of 255). Colors are compared premultiplied by their alpha, so that the color of a pixel counts as much as it can be seen.
+ * 	Every other file of the reference must exist.</li>
+ * 	<li>The reference outputs were made by the first version of this program, so some images are known to differ: animated textures with {@link Main#useScale} {@code false}
+ * 	are now resized frame by frame, and colors next to transparent pixels are blended differently. The baseline lists every image that differs, with its largest difference.
+ * 	No other image may differ, and none of them may differ more than in the baseline.</li>
+ * 	<li>Pixels of the "opaque interior" of an image, i.e. opaque pixels whose neighbors are all opaque as well (in both images), are not blended with transparent ones.
+ * 	They must match within "{@code tolerance}" in every image that has the same size as the reference, even in the ones that the baseline lists.</li>
+ * 	<li>The files per second of the fastest run must not be lower than in the baseline by more than "{@code threshold}" percent.</li>
+ * </ul>
+ * The baseline is kept in "{@code src/bench/regression-baseline.json}".</p>
+ * <p>Build it with "{@code mvn -P bench package}", then run "{@code java -cp target/benchmarks.jar bench.Regression}" from the root of the project, followed by any of:
+ * <ul>
+ * 	<li>"{@code runs=(number)}" : the number of runs of each configuration. Default: {@value #RUNS}.</li>
+ * 	<li>"{@code tolerance=(number)}" : the largest difference allowed in a channel of a pixel, from 0 to 255. Default: {@value #TOLERANCE}.</li>
+ * 	<li>"{@code threshold=(percent)}" : how much slower than the baseline a configuration may be. Default: {@value #THRESHOLD}.</li>
+ * 	<li>"{@code update=true}" : write the results of this run as the new baseline, instead of comparing with it. Do this on the computer that the check runs on, since the baseline depends on it.</li>
+ * </ul>
+ * The results are written to "{@code src/out/bench/regression-(date).json}". The program exits with status 1 if any check fails.</p>
+ */
+public class Regression {
+
+	private static final int RUNS = 3;
+	private static final int TOLERANCE = 2; // Out of 255
+	private static final int THRESHOLD = 20; // Percent; runs of the same code vary by about 10%
+	private static final int WORST = 5; // The number of most different images listed for each configuration, and for each failed check
+
+	/**
+	 * A single configuration, that a reference output was made with.
+	 */
+	private static class Config {
+		final String name;
+		final String reference; // The ".zip" in "examples"
+		final String[] options;
+
+		Config(String name, String reference, String... options) {
+			this.name = name;
+			this.reference = reference;
+			this.options = options;
+		}
+	}
+
+	private static final Config[] CONFIGS = {
+		new Config("4x4 (Everything)", "Resized Textures 4x4 (Everything).zip", "size=4", "useScale=true",
+				"block=true", "effect=true", "entity=true", "environment=true", "font=true", "gui=true", "item=true", "map=true", "misc=true",
+				"mob_effect=true", "models=true", "painting=true", "particle=true"),
+		new Config("7x7 (Block&Item)", "Resized Textures 7x7 (Block&Item).zip", "size=7", "useScale=true",
+				"block=true", "effect=false", "entity=false", "environment=false", "font=false", "gui=false", "item=true", "map=false", "misc=false",
+				"mob_effect=false", "models=false", "painting=false", "particle=false"),
+		new Config("12x12 (Most)", "Resized Textures 12x12 (Most).zip", "size=12", "useScale=false",
+				"block=true", "effect=false", "entity=true", "environment=true", "font=false", "gui=false", "item=true", "map=true", "misc=true",
+				"mob_effect=false", "models=true", "painting=true", "particle=true"),
+	};
+
+	public static void main(String[] args) throws Exception {
+		if (args.length == 2 && args[0].equals("--run")) { // A single run, in a process of its own
+			run(CONFIGS[Integer.parseInt(args[1])]);
+			return;
+		}
+		Map<String, String> values = new LinkedHashMap<String, String>();
+		for (String arg : args) {
+			int eq = arg.indexOf('=');
+			if (eq < 0) throw new IllegalArgumentException("Argument \"" + arg + "\" is invalid. Arguments must be of the form name=value.");
+			values.put(arg.substring(0, eq).trim(), arg.substring(eq+1).trim());
+		}
+		int runs = values.containsKey("runs") ? Integer.parseInt(values.get("runs")) : RUNS;
+		int tolerance = values.containsKey("tolerance") ? Integer.parseInt(values.get("tolerance")) : TOLERANCE;
+		int threshold = values.containsKey("threshold") ? Integer.parseInt(values.get("threshold")) : THRESHOLD;
+		boolean update = Boolean.parseBoolean(values.get("update"));
+
+		File baselineFile = new File(Main.loc + "/src/bench/regression-baseline.json");
+		Map<?, ?> baseline = null;
+		if (!update && baselineFile.isFile()) baseline = (Map<?, ?>) Json.parse(new String(Files.readAllBytes(baselineFile.toPath()), StandardCharsets.UTF_8));
+		if (!update && baseline == null) System.out.println("No baseline at " + baselineFile.getPath() + "; only the output is checked. Run with update=true to create it.");
+
+		Map<String, Object> results = new LinkedHashMap<String, Object>();
+		List<String> failures = new ArrayList<String>();
+		for (int i = 0; i < CONFIGS.length; i++) {
+			Config c = CONFIGS[i];
+			System.out.println("== " + c.name);
+
+			// Run the program, each time in a new process
+			Map<?, ?> fastest = null;
+			long peakRss = -1;
+			for (int r = 0; r < runs; r++) {
+				Map<?, ?> result = fork(i);
+				System.out.printf("  run %d: %.2f seconds, %.0f files per second%n", r+1, number(result, "seconds"), number(result, "files_per_second"));
+				if (fastest == null || number(result, "seconds") < number(fastest, "seconds")) fastest = result;
+				peakRss = Math.max(peakRss, (long) number(result, "peak_rss_bytes"));
+			}
+			Map<String, Object> m = new LinkedHashMap<String, Object>();
+			m.put("seconds", number(fastest, "seconds"));
+			m.put("files", (long) number(fastest, "files"));
+			m.put("files_per_second", number(fastest, "files_per_second"));
+			m.put("bytes_written", (long) number(fastest, "bytes_written"));
+			m.put("peak_rss_bytes", peakRss);
+
+			// Compare the output with the reference
+			Map<String, Object> compare = compare(new File(Main.loc + "/examples/" + c.reference), new File(output(c)), tolerance);
+			m.put("output", compare);
+			System.out.printf("  fastest: %.2f seconds, %.0f files per second, %d bytes written, peak RSS: %s%n", number(m, "seconds"), number(m, "files_per_second"),
+					m.get("bytes_written"), peakRss < 0 ? "unknown" : String.format("%.1f MB", peakRss/1048576.0));
+			System.out.println("  output: " + compare.get("images") + " images compared, " + compare.get("different") + " different, " + compare.get("missing") + " missing"
+					+ ", largest difference: " + compare.get("max_difference") + ", largest difference of an opaque interior: " + compare.get("max_interior_difference"));
+			Map<?, ?> base = baseline == null ? null : (Map<?, ?>) baseline.get(c.name);
+			if (((Number) compare.get("missing")).intValue() > 0) failures.add(c.name + ": files of " + c.reference + " are missing (" + compare.get("worst") + ")");
+			if (number(compare, "max_interior_difference") > tolerance) {
+				failures.add(String.format("%s: opaque interiors differ from %s by up to %d, more than %d (%s)", c.name, c.reference, compare.get("max_interior_difference"), tolerance, compare.get("worst_interiors")));
+			}
+			if (base != null) { // Every image that differs must be in the baseline, and not differ more than it did
+				Map<?, ?> known = (Map<?, ?>) base.get("differences");
+				List<String> worse = new ArrayList<String>();
+				int count = 0;
+				for (Map.Entry<?, ?> e : ((Map<?, ?>) compare.get("differences")).entrySet()) {
+					Number before = (Number) known.get(e.getKey());
+					int now = ((Number) e.getValue()).intValue();
+					if (before != null && now <= before.intValue()) continue;
+					if (count++ < WORST) worse.add(e.getKey() + " (" + now + (before == null ? ", new" : ", " + before.intValue() + " in the baseline") + ")");
+				}
+				if (count > 0) failures.add(String.format("%s: %d images differ from %s more than in the baseline (%s)", c.name, count, c.reference, worse));
+			}
+
+			// Compare the speed with the baseline
+			if (base != null) {
+				double change = 100*(number(m, "files_per_second")/number(base, "files_per_second") - 1);
+				m.put("change_percent", Math.round(change*10)/10.0);
+				System.out.printf("  throughput: %+.1f%% from the baseline of %.0f files per second%n", change, number(base, "files_per_second"));
+				if (change < -threshold) failures.add(String.format("%s: %.1f%% slower than the baseline (more than %d%%)", c.name, -change, threshold));
+			}
+			results.put(c.name, m);
+		}
+
+		// Keep the results
+		File dir = new File(Main.loc + "/src/out/bench");
+		dir.mkdirs();
+		File resultFile = new File(dir, "regression-" + new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss").format(new Date()) + ".json");
+		write(resultFile, results);
+		System.out.println("Results written to " + resultFile.getPath());
+		if (update) {
+			Map<String, Object> b = new LinkedHashMap<String, Object>();
+			for (Map.Entry<String, Object> e : results.entrySet()) { // Only what the next runs compare with
+				Map<String, Object> m = new LinkedHashMap<String, Object>();
+				m.put("files_per_second", ((Map<?, ?>) e.getValue()).get("files_per_second"));
+				m.put("differences", ((Map<?, ?>) ((Map<?, ?>) e.getValue()).get("output")).get("differences"));
+				b.put(e.getKey(), m);
+			}
+			write(baselineFile, b);
+			System.out.println("Baseline written to " + baselineFile.getPath());
+		}
+
+		if (failures.isEmpty()) {
+			System.out.println("Every check passed.");
+			return;
+		}
+		for (String f : failures) System.out.println("FAILED " + f);
+		System.exit(1);
+	}
+
+	/**
+	 * Runs a configuration in a new Java process, with the same class path as this one.
+	 * @return What {@link #run(Config)} wrote.
+	 */
+	private static Map<?, ?> fork(int config) throws IOException, InterruptedException {
+		File result = new File(Main.loc + "/src/out/regression/run.json");
+		Files.deleteIfExists(result.toPath());
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), Regression.class.getName(), "--run", String.valueOf(config));
+		builder.directory(new File(Main.loc));
+		builder.redirectErrorStream(true);
+		builder.redirectOutput(new File(Main.loc + "/src/out/regression/run.log")); // The progress of the run is not of interest, unless it fails
+		new File(Main.loc + "/src/out/regression").mkdirs();
+		int exit = builder.start().waitFor();
+		if (exit != 0 || !result.isFile()) throw new IOException("The run of " + CONFIGS[config].name + " failed with exit code " + exit + "; see src/out/regression/run.log.");
+		return (Map<?, ?>) Json.parse(new String(Files.readAllBytes(result.toPath()), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Runs the program once, in this process, and writes what happened to "{@code src/out/regression/run.json}".
+	 */
+	private static void run(Config c) throws IOException {
+		List<String> args = new ArrayList<String>(Arrays.asList(c.options));
+		args.addAll(Arrays.asList("pack=Default", "sizes=", "name_out=regression/" + c.name, "incremental=false", "zip_out=false", "report=false"));
+		Options o = Main.parseArgs(args.toArray(new String[0]));
+		File out = new File(output(c));
+		Shards.delete(out); // Every file is written again
+
+		ExecutorService pool = Executors.newCachedThreadPool();
+		long time = System.nanoTime();
+		RunReport report;
+		try {
+			report = Main.run(o, pool);
+		} finally {
+			pool.shutdown();
+		}
+		double seconds = (System.nanoTime() - time)/1e9;
+
+		Map<String, Object> summary = report.toJson();
+		long files = ((Number) summary.get("resized")).longValue() + ((Number) summary.get("copied")).longValue();
+		Map<String, Object> result = new LinkedHashMap<String, Object>();
+		result.put("seconds", seconds);
+		result.put("files", files);
+		result.put("files_per_second", files/seconds);
+		result.put("bytes_written", size(out.toPath()));
+		result.put("peak_rss_bytes", peakRss());
+		write(new File(Main.loc + "/src/out/regression/run.json"), result);
+	}
+
+	/**
+	 * Compares every file of a reference ".zip" with the output.
+	 * @return The number of images compared, how many differ, how many files are missing, the largest difference, the most different images,
+	 * the largest difference of an opaque interior and the images with the most different ones, and the largest difference of every image that differs.
+	 */
+	private static Map<String, Object> compare(File reference, File output, final int tolerance) throws IOException {
+		final int[] counts = new int[5]; // {images, different, missing, largest difference, largest difference of an opaque interior}
+		final List<Object[]> worst = new ArrayList<Object[]>(); // {path, difference}
+		final List<Object[]> worstInteriors = new ArrayList<Object[]>(); // {path, difference of the opaque interior}
+		final Map<String, Object> differences = new TreeMap<String, Object>(); // Sorted, so that the baseline is easy to compare by hand
+		final Path out = output.toPath();
+		FileSystem zip = FileSystems.newFileSystem(reference.toPath(), (ClassLoader) null);
+		try {
+			final Path root = Main.findPackRoot(zip.getPath("/"));
+			Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+				public FileVisitResult visitFile(Path f, BasicFileAttributes attrs) throws IOException {
+					String rel = root.relativize(f).toString();
+					File o = out.resolve(rel).toFile();
+					if (!o.isFile()) {
+						counts[2]++;
+						worst.add(new Object[] {rel + " (missing)", 256});
+						return FileVisitResult.CONTINUE;
+					}
+					if (!rel.endsWith(".png")) return FileVisitResult.CONTINUE;
+					counts[0]++;
+					int[] d = difference(ImageIO.read(new ByteArrayInputStream(Files.readAllBytes(f))), ImageIO.read(o));
+					counts[3] = Math.max(counts[3], d[0]);
+					counts[4] = Math.max(counts[4], d[1]);
+					if (d[0] > tolerance) {
+						counts[1]++;
+						worst.add(new Object[] {rel, d[0]});
+						differences.put(rel, d[0]);
+					}
+					if (d[1] > tolerance) worstInteriors.add(new Object[] {rel, d[1]});
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} finally {
+			zip.close();
+		}
+		Map<String, Object> m = new LinkedHashMap<String, Object>();
+		m.put("images", counts[0]);
+		m.put("different", counts[1]);
+		m.put("missing", counts[2]);
+		m.put("max_difference", counts[3]);
+		m.put("worst", worst(worst));
+		m.put("max_interior_difference", counts[4]);
+		m.put("worst_interiors", worst(worstInteriors));
+		m.put("differences", differences);
+		return m;
+	}
+
+	/**
+	 * @param images The path and the difference of each image.
+	 * @return The {@value #WORST} most different images, with their difference (unless they are missing or do not have the same size), most different first.
+	 */
+	private static List<Object> worst(List<Object[]> images) {
+		Collections.sort(images, new Comparator<Object[]>() { // Most different first
+			public int compare(Object[] a, Object[] b) { return (Integer) b[1] - (Integer) a[1]; }
+		});
+		List<Object> names = new ArrayList<Object>();
+		for (int i = 0; i < Math.min(WORST, images.size()); i++) names.add(images.get(i)[0] + (((Integer) images.get(i)[1]) > 255 ? "" : " (" + images.get(i)[1] + ")"));
+		return names;
+	}
+
+	/**
+	 * @return The largest difference of a single channel of a single pixel, from 0 to 255, or 256 if the images do not have the same size (or one is not an image),
+	 * then the same only over the opaque interior, i.e. the pixels that are opaque in both images, and whose eight neighbors (inside of the image) are as well (0 if the sizes differ).
+	 * Colors are premultiplied by their alpha first, so the color of a fully transparent pixel makes no difference.
+	 */
+	private static int[] difference(BufferedImage a, BufferedImage b) {
+		if (a == null || b == null || a.getWidth() != b.getWidth() || a.getHeight() != b.getHeight()) return new int[] {256, 0};
+		int w = a.getWidth(), h = a.getHeight();
+		int[] pa = argb(a), pb = argb(b);
+		int max = 0, interior = 0;
+		for (int i = 0; i < pa.length; i++) {
+			int alphaA = pa[i] >>> 24, alphaB = pb[i] >>> 24;
+			int d = Math.abs(alphaA - alphaB);
+			for (int shift = 0; shift < 24; shift += 8) {
+				d = Math.max(d, Math.abs((((pa[i] >>> shift) & 0xFF)*alphaA + 127)/255 - (((pb[i] >>> shift) & 0xFF)*alphaB + 127)/255));
+			}
+			max = Math.max(max, d);
+			if (d > interior && opaque(pa, pb, w, h, i % w, i / w)) interior = d;
+		}
+		return new int[] {max, interior};
+	}
+
+	/**
+	 * @return The ARGB pixels of an image. Gray images are read as the values stored in the file, the same way as {@code Resampler} and Minecraft read them:
+	 * {@link ImageIO} decodes gray "png" files as linear gray, and {@link BufferedImage#getRGB(int, int, int, int, int[], int, int)} would brighten them.
+	 */
+	private static int[] argb(BufferedImage image) {
+		int w = image.getWidth(), h = image.getHeight();
+		if (image.getColorModel().getColorSpace().getType() != ColorSpace.TYPE_GRAY || image.getColorModel() instanceof IndexColorModel) return image.getRGB(0, 0, w, h, null, 0, w);
+		Raster raster = image.getRaster();
+		int bands = raster.getNumBands(); // 1 for gray, 2 for gray with alpha
+		int max = (1 << raster.getSampleModel().getSampleSize(0)) - 1;
+		int[] samples = raster.getPixels(0, 0, w, h, (int[]) null);
+		int[] p = new int[w*h];
+		for (int i = 0; i < p.length; i++) {
+			int g = samples[i*bands]*255/max;
+			int a = bands > 1 ? samples[i*bands+1]*255/max : 0xFF;
+			p[i] = (a << 24) | (g << 16) | (g << 8) | g;
+		}
+		return p;
+	}
+
+	/**
+	 * @return {@code true} if the pixel at (x, y) and its eight neighbors (inside of the image) are opaque in both images.
+	 */
+	private static boolean opaque(int[] pa, int[] pb, int w, int h, int x, int y) {
+		for (int j = Math.max(0, y-1); j <= Math.min(h-1, y+1); j++) {
+			for (int i = Math.max(0, x-1); i <= Math.min(w-1, x+1); i++) {
+				if ((pa[j*w + i] >>> 24) != 0xFF || (pb[j*w + i] >>> 24) != 0xFF) return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return The location of the output of a configuration.
+	 */
+	private static String output(Config c) {
+		return Main.loc + "/src/out/regression/" + c.name;
+	}
+
+	/**
+	 * @return The size of every file inside of a folder, in bytes.
+	 */
+	private static long size(Path folder) throws IOException {
+		final long[] bytes = new long[1];
+		Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+			public FileVisitResult visitFile(Path f, BasicFileAttributes attrs) {
+				bytes[0] += attrs.size();
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		return bytes[0];
+	}
+
+	/**
+	 * @return The peak resident memory of this process, in bytes, or -1 if it is not known (i.e. not on Linux).
+	 */
+	private static long peakRss() {
+		File status = new File("/proc/self/status");
+		if (!status.isFile()) return -1;
+		try {
+			for (String line : Files.readAllLines(status.toPath(), StandardCharsets.UTF_8)) {
+				if (line.startsWith("VmHWM:")) return Long.parseLong(line.substring(6).replace("kB", "").trim())*1024;
+			}
+		} catch (IOException | NumberFormatException e) {
+			// Not known
+		}
+		return -1;
+	}
+
+	private static double number(Map<?, ?> m, String key) {
+		return ((Number) m.get(key)).doubleValue();
+	}
+
+	private static void write(File f, Object value) throws IOException {
+		FileOutputStream out = new FileOutputStream(f);
+		try {
+			out.write(Json.write(value).getBytes(StandardCharsets.UTF_8));
+		} finally {
+			out.close();
+		}
+	}
+}
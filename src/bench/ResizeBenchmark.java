@@ -0,0 +1,52 @@
+package bench;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.*;
+
+import main.Main;
+import main.Resampler;
+import main.Target;
+
+/**
+ * The {@code ResizeBenchmark} measures the resize stage of the {@link main.Pipeline}: {@link Main#resizeImage(BufferedImage, int, int)} with {@link Main#filter},
+ * to the common sizes, with and without {@link Main#useScale}.
+ * <p>{@link #resizeLinear()} does the same in linear light, with premultiplied alpha (see {@link Main#linear_light}), to compare the cost of both.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResizeBenchmark {
+
+	@Param({"block/dirt", "block/oak_leaves", "item/diamond_sword", "block/kelp", "entity/pig/pig", "gui/widgets"})
+	public String texture;
+
+	@Param({"4", "7", "12", "16"})
+	public short size;
+
+	@Param({"true", "false"})
+	public boolean useScale;
+
+	private BufferedImage image;
+	private Dimension d; // The size of the output image
+
+	@Setup
+	public void setup() throws IOException {
+		image = Textures.decode(texture);
+		d = Target.outputSize(image.getWidth(), image.getHeight(), size, useScale);
+	}
+
+	@Benchmark
+	public BufferedImage resizeImage() {
+		return Main.resizeImage(image, d.width, d.height);
+	}
+
+	@Benchmark
+	public BufferedImage resizeLinear() {
+		return Resampler.resize(image, d.width, d.height, Main.resampleFilter, true);
+	}
+}
@@ -0,0 +1,53 @@
+package bench;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import javax.imageio.ImageIO;
+
+/**
+ * The {@code Textures} class loads the textures that every benchmark runs on, from the "Default" resourcepack in {@code src/resources}.
+ * <p>The textures are picked to cover the common shapes of a resourcepack:
+ * <ul>
+ * 	<li>"{@code block/dirt}" : an opaque 16x16 texture.</li>
+ * 	<li>"{@code block/oak_leaves}" : a 16x16 texture with transparent pixels.</li>
+ * 	<li>"{@code item/diamond_sword}" : a 16x16 item, mostly transparent.</li>
+ * 	<li>"{@code block/kelp}" : a 16x320 animated strip.</li>
+ * 	<li>"{@code entity/pig/pig}" : a 64x32 entity skin.</li>
+ * 	<li>"{@code gui/widgets}" : a 256x256 gui sheet.</li>
+ * </ul>
+ * </p>
+ * <p>Benchmarks must be run from the root of the project, the same as {@link main.Main}.</p>
+ */
+public class Textures {
+
+	/**
+	 * Every texture that benchmarks run on, relative to "{@code assets/minecraft/textures}" and without ".png". Used as the value of each {@code texture} parameter.
+	 */
+	public static final String[] NAMES = {"block/dirt", "block/oak_leaves", "item/diamond_sword", "block/kelp", "entity/pig/pig", "gui/widgets"};
+
+	/**
+	 * Reads the bytes of a texture.
+	 * @param name One of {@link #NAMES}.
+	 * @return The content of the ".png" file.
+	 * @throws IOException
+	 */
+	public static byte[] read(String name) throws IOException {
+		File f = new File(main.Main.loc + "/src/resources/Default/assets/minecraft/textures/" + name + ".png");
+		if (!f.isFile()) throw new IOException("Missing texture " + f.getPath() + "; benchmarks must be run from the root of the project.");
+		return Files.readAllBytes(f.toPath());
+	}
+
+	/**
+	 * Reads and decodes a texture.
+	 * @param name One of {@link #NAMES}.
+	 * @return The decoded image.
+	 * @throws IOException
+	 */
+	public static BufferedImage decode(String name) throws IOException {
+		return ImageIO.read(new ByteArrayInputStream(read(name)));
+	}
+}
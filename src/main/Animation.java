@@ -0,0 +1,231 @@
+package main;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code Animation} class resizes animated textures, such as "{@code block/kelp.png}" or "{@code block/lava_still.png}", frame by frame.
+ * <p>An animated texture is a strip of frames, described by the "animation" block of its ".png.mcmeta" file. Resizing the whole strip as one image would squash
+ * every frame into a single {@code size x size} image (if {@link Main#useScale} is {@code false}), and would blend the edges of neighbouring frames together.
+ * Instead, every frame is resized on its own, straight from the source strip into the output strip.</p>
+ * <p>Frames that are identical to an earlier frame are only resized and stored once. When that happens, the "frames" list of the ".png.mcmeta" is rewritten to
+ * point at the remaining frames, and consecutive entries that show the same frame are merged into one entry with the sum of their times.</p>
+ */
+public class Animation {
+
+	private static final byte[] ANIMATION = "animation".getBytes(StandardCharsets.US_ASCII);
+
+	private final Map<String, Object> mcmeta; // The whole ".png.mcmeta"
+	private final Map<String, Object> animation; // The "animation" block of the ".png.mcmeta"
+	private final int frameTime; // The default time of each frame, in ticks
+
+	private Animation(Map<String, Object> mcmeta, Map<String, Object> animation) {
+		this.mcmeta = mcmeta;
+		this.animation = animation;
+		this.frameTime = integer(animation.get("frametime"), 1);
+	}
+
+	/**
+	 * The result of resizing an animated texture for a single {@link Target}.
+	 */
+	public static class Result {
+		/**
+		 * The resized strip of frames.
+		 */
+		public final BufferedImage image;
+		/**
+		 * The content of the new ".png.mcmeta", or {@code null} if the original one may be copied as it is.
+		 */
+		public final byte[] mcmeta;
+
+		Result(BufferedImage image, byte[] mcmeta) {
+			this.image = image;
+			this.mcmeta = mcmeta;
+		}
+	}
+
+	/**
+	 * Checks whether a ".png.mcmeta" file may have an "animation" block, without parsing it.
+	 * @param mcmeta The content of the ".png.mcmeta" file.
+	 * @return {@code false} if the word "animation" is nowhere in the file, so that {@link #parse(byte[])} would return {@code null}.
+	 */
+	public static boolean mentionsAnimation(byte[] mcmeta) {
+		outer:
+		for (int i = 0; i + ANIMATION.length <= mcmeta.length; i++) {
+			for (int j = 0; j < ANIMATION.length; j++) if (mcmeta[i+j] != ANIMATION[j]) continue outer;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Reads the "animation" block of a ".png.mcmeta" file.
+	 * @param mcmeta The content of the ".png.mcmeta" file.
+	 * @return The animation, or {@code null} if the file does not describe an animation (or is not valid JSON).
+	 */
+	@SuppressWarnings("unchecked")
+	public static Animation parse(byte[] mcmeta) {
+		Object root;
+		try {
+			root = Json.parse(new String(mcmeta, StandardCharsets.UTF_8));
+		} catch (IllegalArgumentException e) {
+			return null; // Not something this program understands, it will be copied as it is
+		}
+		if (!(root instanceof Map)) return null;
+		Object animation = ((Map<String, Object>) root).get("animation");
+		if (!(animation instanceof Map)) return null;
+		return new Animation((Map<String, Object>) root, (Map<String, Object>) animation);
+	}
+
+	/**
+	 * Finds the size of each frame of a strip.
+	 * <p>This follows the same rules as Minecraft: frames are {@code width x height} if the ".png.mcmeta" gives both. If it only gives one of them,
+	 * the other one is the whole width or height of the strip. If it gives neither, frames are square, as large as the shorter side of the strip.</p>
+	 * @return The size of each frame, or {@code null} if the strip cannot be split into whole frames of that size.
+	 */
+	public Dimension frameSize(int w, int h) {
+		int fw = integer(animation.get("width"), -1);
+		int fh = integer(animation.get("height"), -1);
+		if (fw <= 0 && fh <= 0) fw = fh = Math.min(w, h);
+		else if (fw <= 0) fw = w;
+		else if (fh <= 0) fh = h;
+		if (fw > w || fh > h || w % fw != 0 || h % fh != 0) return null;
+		return new Dimension(fw, fh);
+	}
+
+	/**
+	 * Resizes every frame of a strip for a single target.
+	 * @param src The ARGB pixels of the source strip.
+	 * @param w The width of the source strip.
+	 * @param h The height of the source strip.
+	 * @param target The target to resize for.
+	 * @param filter The filter to use.
+	 * @param linear Whether to blend in linear light, with premultiplied alpha.
+	 * @return The resized strip, and its ".png.mcmeta" if it had to be changed. {@code null} if the strip cannot be split into frames (see {@link #frameSize(int, int)}).
+	 */
+	public Result resize(int[] src, int w, int h, Target target, Resampler.Filter filter, boolean linear) {
+		Dimension frame = frameSize(w, h);
+		if (frame == null) return null;
+		int cols = w/frame.width;
+		int count = cols*(h/frame.height);
+
+		// Find out which frames are identical to an earlier frame
+		int[] unique = new int[count]; // For each source frame, the index of the output frame that shows it
+		List<Integer> kept = new ArrayList<Integer>(); // The source frame of each output frame
+		Map<Integer, List<Integer>> byHash = new HashMap<Integer, List<Integer>>();
+		int[][] pixels = new int[count][];
+		for (int f = 0; f < count; f++) {
+			pixels[f] = frame(src, w, cols, frame, f);
+			int hash = Arrays.hashCode(pixels[f]);
+			List<Integer> same = byHash.get(hash);
+			if (same == null) byHash.put(hash, same = new ArrayList<Integer>());
+			unique[f] = -1;
+			for (int k : same) {
+				if (Arrays.equals(pixels[kept.get(k)], pixels[f])) {
+					unique[f] = k;
+					break;
+				}
+			}
+			if (unique[f] < 0) {
+				unique[f] = kept.size();
+				same.add(kept.size());
+				kept.add(f);
+			}
+		}
+
+		// Resize each remaining frame, straight into the output strip
+		Dimension d = target.outputSize(frame.width, frame.height);
+		BufferedImage out = new BufferedImage(d.width, d.height*kept.size(), BufferedImage.TYPE_INT_ARGB);
+		int[] dst = ((DataBufferInt) out.getRaster().getDataBuffer()).getData();
+		for (int k = 0; k < kept.size(); k++) {
+			Resampler.resize(pixels[kept.get(k)], 0, frame.width, frame.height, dst, k*d.width*d.height, d.width, d.height, filter, linear);
+		}
+
+		// Only write a new ".png.mcmeta" if something about it changed
+		boolean dims = animation.containsKey("width") || animation.containsKey("height");
+		if (kept.size() == count && cols == 1 && !dims) return new Result(out, null);
+		return new Result(out, rewrite(unique, count, d).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Gets the pixels of a single frame. Frames of a vertical strip are already in one piece, so only frames of wider strips need to be rearranged.
+	 */
+	private static int[] frame(int[] src, int w, int cols, Dimension frame, int f) {
+		int size = frame.width*frame.height;
+		if (cols == 1) return Arrays.copyOfRange(src, f*size, (f+1)*size);
+		int[] p = new int[size];
+		int x0 = (f % cols)*frame.width, y0 = (f / cols)*frame.height;
+		for (int y = 0; y < frame.height; y++) System.arraycopy(src, (y0+y)*w + x0, p, y*frame.width, frame.width);
+		return p;
+	}
+
+	/**
+	 * Writes the ".png.mcmeta" of the output strip, with the frames list pointing at the output frames.
+	 */
+	private String rewrite(int[] unique, int count, Dimension d) {
+		// The order that frames are shown in, as {frame, time}
+		List<int[]> sequence = new ArrayList<int[]>();
+		Object frames = animation.get("frames");
+		if (frames instanceof List) {
+			for (Object o : (List<?>) frames) {
+				int index, time = frameTime;
+				if (o instanceof Map) {
+					index = integer(((Map<?, ?>) o).get("index"), 0);
+					time = integer(((Map<?, ?>) o).get("time"), frameTime);
+				} else {
+					index = integer(o, 0);
+				}
+				sequence.add(new int[] {index >= 0 && index < count ? unique[index] : index, time});
+			}
+		} else {
+			for (int f = 0; f < count; f++) sequence.add(new int[] {unique[f], frameTime});
+		}
+
+		// Merge consecutive entries that show the same frame
+		List<int[]> merged = new ArrayList<int[]>();
+		for (int[] e : sequence) {
+			int[] last = merged.isEmpty() ? null : merged.get(merged.size()-1);
+			if (last != null && last[0] == e[0]) last[1] += e[1];
+			else merged.add(new int[] {e[0], e[1]});
+		}
+
+		Map<String, Object> a = new LinkedHashMap<String, Object>(animation);
+		if (a.containsKey("width") || a.containsKey("height")) { // The output is a single column of frames, so give both; the missing one would be the whole width or height of the strip
+			a.put("width", (long) d.width);
+			a.put("height", (long) d.height);
+		}
+		boolean plain = true; // Whether the frames are simply shown in order, each for (frametime)
+		for (int j = 0; j < merged.size(); j++) plain &= merged.get(j)[0] == j && merged.get(j)[1] == frameTime;
+		if (plain) {
+			a.remove("frames");
+		} else {
+			List<Object> list = new ArrayList<Object>();
+			for (int[] e : merged) {
+				if (e[1] == frameTime) {
+					list.add((long) e[0]);
+				} else {
+					Map<String, Object> entry = new LinkedHashMap<String, Object>();
+					entry.put("index", (long) e[0]);
+					entry.put("time", (long) e[1]);
+					list.add(entry);
+				}
+			}
+			a.put("frames", list);
+		}
+		Map<String, Object> root = new LinkedHashMap<String, Object>(mcmeta);
+		root.put("animation", a);
+		return Json.write(root);
+	}
+
+	private static int integer(Object o, int fallback) {
+		return o instanceof Number ? ((Number) o).intValue() : fallback;
+	}
+}
@@ -0,0 +1,211 @@
+package main;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+/**
+ * The {@code AsyncSink} hands the files of the output resourcepack to another {@link PackSink} on a background thread, so that the workers of the {@link Pipeline}
+ * never wait for the disk.
+ * <p>{@link #write(String, byte[])}, {@link #copy(String, String)} and {@link #transfer(String, Path)} only add the file to a queue, and return at once. A single writer thread takes the queued files
+ * in batches of up to {@value #BATCH}, and writes them one after another, in the order they were given. Files that are linked to an earlier file (see {@link FolderSink})
+ * are therefore always written after it.</p>
+ * <p>The workers only wait if more than {@value #MAX_PENDING} bytes are waiting to be written. The writer thread is started when the first file arrives,
+ * and ends once nothing has arrived for {@value #IDLE} milliseconds, so an idle sink (i.e. in {@link Watcher} mode) holds no thread.</p>
+ * <p>An error of the writer thread is thrown by the next call to any method of this sink, and always by {@link #flush()} and {@link #close()}.
+ * After a failed run, {@link #discard()} drops every queued file, waits for the batch being written, and discards the other sink.</p>
+ */
+public class AsyncSink implements PackSink {
+
+	private static final long MAX_PENDING = 32L << 20; // The most bytes that may wait to be written before write() waits
+	private static final int BATCH = 256; // The most files that the writer thread takes from the queue at once
+	private static final long IDLE = 1000; // How long the writer thread waits for more files before it ends, in milliseconds
+
+	private final PackSink sink; // Where the files are actually written
+	private final String name; // The name of the writer thread
+
+	// Guarded by (this)
+	private final ArrayDeque<Write> queue = new ArrayDeque<Write>();
+	private int pending; // Files that are queued or being written
+	private long pendingBytes; // The size of those files
+	private boolean running; // Whether the writer thread is running
+	private boolean closed;
+	private boolean finished; // Whether (sink) was closed or discarded
+	private IOException failure; // The first error of the writer thread
+
+	/**
+	 * A single file to write.
+	 */
+	private static class Write {
+		final String path;
+		final String original; // The file with the same content, for a copy, or null
+		final byte[] data; // The content, or null for a copy or a transfer
+		final Path source; // The file to transfer, or null
+
+		Write(String path, String original, byte[] data, Path source) {
+			this.path = path;
+			this.original = original;
+			this.data = data;
+			this.source = source;
+		}
+
+		long size() {
+			return data == null ? 0 : data.length; // A copy or a transfer holds no memory
+		}
+	}
+
+	/**
+	 * @param sink The sink to write every file to, from the writer thread.
+	 * @param name The name of the writer thread, i.e. the output resourcepack it writes.
+	 */
+	public AsyncSink(PackSink sink, String name) {
+		this.sink = sink;
+		this.name = name;
+	}
+
+	public void write(String path, byte[] data) throws IOException {
+		add(new Write(path, null, data, null));
+	}
+
+	public void copy(String path, String original) throws IOException {
+		add(new Write(path, original, null, null)); // Always after the original in the queue, so it is written by then
+	}
+
+	public void transfer(String path, Path source) throws IOException {
+		add(new Write(path, null, null, source));
+	}
+
+	/**
+	 * Waits until every file given so far is written.
+	 * @throws IOException If any of them could not be written.
+	 */
+	public synchronized void flush() throws IOException {
+		while (pending > 0) await();
+		check();
+		sink.flush();
+	}
+
+	/**
+	 * Waits until every file is written, then closes the sink that they are written to.
+	 */
+	public void close() throws IOException {
+		synchronized (this) {
+			if (closed) return;
+			closed = true;
+			notifyAll(); // Let an idle writer thread end now
+			while (pending > 0) await();
+			check();
+		}
+		sink.close();
+		synchronized (this) {
+			finished = true;
+		}
+	}
+
+	public void discard() {
+		synchronized (this) {
+			if (finished) return;
+			finished = true;
+			closed = true;
+			for (Write w : queue) { // Never written
+				pending--;
+				pendingBytes -= w.size();
+			}
+			queue.clear();
+			notifyAll(); // Wake the writer thread, and workers waiting for room
+			while (pending > 0) { // The batch that is being written
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+		}
+		sink.discard();
+	}
+
+	private synchronized void add(Write w) throws IOException {
+		check();
+		if (closed) throw new IllegalStateException("The output is already closed.");
+		while (pendingBytes > 0 && pendingBytes + w.size() > MAX_PENDING) { // The disk is far behind, wait for it
+			await();
+			check();
+			if (closed) throw new IllegalStateException("The output is already closed.");
+		}
+		queue.add(w);
+		pending++;
+		pendingBytes += w.size();
+		if (running) {
+			notifyAll(); // Wake the writer thread, if it waits for files
+			return;
+		}
+		running = true;
+		Thread writer = new Thread(new Runnable() {
+			public void run() {
+				drain();
+			}
+		}, name);
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Writes every queued file, until none has arrived for {@value #IDLE} milliseconds. Runs on the writer thread.
+	 */
+	private void drain() {
+		ArrayList<Write> batch = new ArrayList<Write>(BATCH);
+		while (true) {
+			synchronized (this) {
+				long idleSince = System.currentTimeMillis();
+				while (queue.isEmpty()) {
+					long left = IDLE - (System.currentTimeMillis() - idleSince);
+					if (left <= 0 || closed) { // Nothing to do, end this thread; add() starts a new one when more files arrive
+						running = false;
+						return;
+					}
+					try {
+						wait(left);
+					} catch (InterruptedException e) {
+						running = false;
+						return;
+					}
+				}
+				while (!queue.isEmpty() && batch.size() < BATCH) batch.add(queue.poll());
+			}
+			for (Write w : batch) {
+				try {
+					if (w.source != null) sink.transfer(w.path, w.source);
+					else if (w.original != null) sink.copy(w.path, w.original);
+					else sink.write(w.path, w.data);
+				} catch (IOException | RuntimeException e) {
+					synchronized (this) {
+						if (failure == null) failure = new IOException("Could not write /" + w.path, e);
+					}
+				}
+			}
+			synchronized (this) {
+				for (Write w : batch) {
+					pending--;
+					pendingBytes -= w.size();
+				}
+				notifyAll(); // Wake flush(), close(), and workers waiting for room
+			}
+			batch.clear();
+		}
+	}
+
+	private void await() throws InterruptedIOException {
+		try {
+			wait();
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException("Interrupted while waiting for the output to be written.");
+		}
+	}
+
+	private void check() throws IOException {
+		if (failure != null) throw failure;
+	}
+}
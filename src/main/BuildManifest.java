@@ -0,0 +1,251 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code BuildManifest} remembers what was written to an output folder by the previous run, so that files which have not changed since then may be skipped.
+ * <p>For each file of the output resourcepack, the manifest stores the hash of the source file, the resize parameters that were used, and the hash of the output file.
+ * A source file is skipped if all three still match; every output whose source was not seen in this run (because it was deleted, or because its category was turned off) is deleted by {@link #prune(boolean)}.</p>
+ * <p>The manifest is saved as "{@value #NAME}" in the root of the output folder, with one tab separated line per file.</p>
+ */
+public class BuildManifest {
+
+	/**
+	 * The name of the manifest file, inside of the output folder.
+	 */
+	public static final String NAME = "resizer.manifest";
+
+	private final File root; // The root folder of the output resourcepack
+	private final String params; // The resize parameters of this run
+	private final Map<String, Entry> previous; // Everything written by the previous run
+	private final Map<String, Entry> current = new ConcurrentHashMap<String, Entry>(); // Everything that is part of the output of this run
+
+	private static class Entry {
+		final String source; // The hash of the source file
+		final String params; // The resize parameters used to create the output
+		final String output; // The hash of the output file
+
+		Entry(String source, String params, String output) {
+			this.source = source;
+			this.params = params;
+			this.output = output;
+		}
+	}
+
+	private BuildManifest(File root, String params, Map<String, Entry> previous) {
+		this.root = root;
+		this.params = params;
+		this.previous = previous;
+	}
+
+	/**
+	 * Loads the manifest of the previous run from an output folder. If there is none, every file will be treated as changed.
+	 * @param root The root folder of the output resourcepack.
+	 * @param params The resize parameters of this run, i.e. "{@code size=16,useScale=true}". If these differ from the ones of the previous run, every image is resized again.
+	 * @return The manifest.
+	 * @throws IOException
+	 */
+	public static BuildManifest load(File root, String params) throws IOException {
+		return new BuildManifest(root, params, read(new File(root, NAME)));
+	}
+
+	/**
+	 * Takes the manifests out of the output folders of the shards of a run (see {@link Shards}), before their files are moved into the output folder.
+	 * <p>The result lists every file of every shard as part of the output, and the manifest of the output folder as the previous run,
+	 * so that {@link #prune(Set)} and {@link #save()} leave the output folder the same as a run in a single process would.
+	 * It is empty if the shards were not {@link Main#incremental}, since they then have no manifests.</p>
+	 * @param root The output folder.
+	 * @param shards The output folder of each shard. Their manifests are deleted.
+	 * @return The merged manifest. Files cannot be {@link #record(String, String, String) recorded} in it.
+	 * @throws IOException
+	 */
+	public static BuildManifest merge(File root, File[] shards) throws IOException {
+		BuildManifest merged = new BuildManifest(root, null, read(new File(root, NAME)));
+		for (File shard : shards) {
+			File file = new File(shard, NAME);
+			if (!file.isFile()) continue;
+			merged.current.putAll(read(file)); // The shards have the same parameters, and never the same file
+			Files.delete(file.toPath());
+		}
+		return merged;
+	}
+
+	private static Map<String, Entry> read(File file) throws IOException {
+		Map<String, Entry> entries = new HashMap<String, Entry>();
+		if (!file.isFile()) return entries;
+		BufferedReader r = new BufferedReader(new FileReader(file));
+		try {
+			String s = r.readLine();
+			while (s != null) {
+				String[] parts = s.split("\t");
+				if (parts.length == 4) entries.put(parts[0], new Entry(parts[1], parts[2], parts[3]));
+				s = r.readLine();
+			}
+		} finally {
+			r.close();
+		}
+		return entries;
+	}
+
+	/**
+	 * Checks whether the output of a file is still the same as the output of the previous run. If it is, the file is kept in the manifest as it is.
+	 * @param path The location of the file, relative to the root of the resourcepack.
+	 * @param source The hash of the source file, from {@link #hash(byte[])}.
+	 * @return {@code true} if the source and the parameters have not changed, and the output file is still the one that was written; the file may be skipped.
+	 * @throws IOException
+	 */
+	public boolean isUpToDate(String path, String source) throws IOException {
+		Entry e = previous.get(path);
+		if (e == null || !e.source.equals(source) || !e.params.equals(params)) return false;
+		File outputfile = new File(root, path);
+		if (!outputfile.isFile() || !e.output.equals(hash(outputfile))) return false; // The output was deleted or modified by hand
+		current.put(path, e);
+		return true;
+	}
+
+	/**
+	 * Records a file that was written by this run.
+	 * @param path The location of the file, relative to the root of the resourcepack.
+	 * @param source The hash of the source file, from {@link #hash(byte[])}.
+	 * @param output The hash of the content that was written, from {@link #hash(byte[]...)}.
+	 */
+	public void record(String path, String source, String output) {
+		current.put(path, new Entry(source, params, output));
+	}
+
+	/**
+	 * Deletes every output of the previous run that is no longer part of the output of this run. Call after every file has been checked or recorded.
+	 * @param verbose Whether to print the name of every file deleted, as is done for every file written when {@link Main#progress_interval} is 0.
+	 * @return The number of files deleted.
+	 */
+	public int prune(boolean verbose) {
+		return prune(current.keySet(), verbose);
+	}
+
+	/**
+	 * Deletes every output of the previous run that is not one of the given files.
+	 * @param kept Every file that is part of the output now, relative to the root of the resourcepack, i.e. every file that the shards of a run wrote.
+	 * @param verbose Whether to print the name of every file deleted.
+	 * @return The number of files deleted.
+	 */
+	public int prune(Set<String> kept, boolean verbose) {
+		int count = 0;
+		for (String path : previous.keySet()) {
+			if (!kept.contains(path) && new File(root, path).delete()) {
+				if (verbose) System.out.println("deleted : /" + path); // Inform the user which file has just been removed
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Deletes the output of a source file that no longer exists, and removes it from the manifest. Used by {@link Watcher} to keep the output folder up to date in place.
+	 * @param path The location of the file (or folder), relative to the root of the resourcepack. Everything inside of a folder is removed as well.
+	 * @param verbose Whether to print the name of every file deleted.
+	 * @return The number of files deleted.
+	 */
+	public int remove(String path, boolean verbose) {
+		int count = 0;
+		for (String p : new ArrayList<String>(current.keySet())) {
+			if (!p.equals(path) && !p.startsWith(path + "/")) continue;
+			current.remove(p);
+			previous.remove(p);
+			if (new File(root, p).delete()) {
+				if (verbose) System.out.println("deleted : /" + p); // Inform the user which file has just been removed
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Keeps everything that is part of the output now, for the next update of the output folder.
+	 * <p>A normal run only keeps the files it checks or records, and {@link #prune(boolean)}s the rest. An update (see {@link Watcher}) only looks at the files that changed,
+	 * so every other file must be kept as it is; after this, files are only dropped by {@link #remove(String)}.
+	 * Must not be called while a {@link Pipeline} is using this manifest.</p>
+	 */
+	public void keepAll() {
+		previous.putAll(current); // Files checked against the manifest from now on are compared with their latest output
+		current.putAll(previous);
+	}
+
+	/**
+	 * @return {@code true} if no file is part of the output of this run (yet).
+	 */
+	public boolean isEmpty() {
+		return current.isEmpty();
+	}
+
+	/**
+	 * Saves the manifest of this run into the output folder, replacing the one of the previous run.
+	 * @throws IOException
+	 */
+	public void save() throws IOException {
+		if (!root.exists()) root.mkdirs();
+		BufferedWriter w = new BufferedWriter(new FileWriter(new File(root, NAME)));
+		try {
+			for (Map.Entry<String, Entry> e : current.entrySet()) {
+				w.write(e.getKey() + "\t" + e.getValue().source + "\t" + e.getValue().params + "\t" + e.getValue().output + "\n");
+			}
+		} finally {
+			w.close();
+		}
+	}
+
+	/**
+	 * @return The SHA-1 hash of the data (every part, one after another), as a hexadecimal {@code String}.
+	 */
+	public static String hash(byte[]... data) {
+		MessageDigest md = sha1();
+		for (byte[] part : data) md.update(part);
+		return hex(md.digest());
+	}
+
+	private static String hash(File f) throws IOException {
+		MessageDigest md = sha1();
+		byte[] buffer = new byte[8192];
+		InputStream in = new FileInputStream(f);
+		try {
+			int n;
+			while ((n = in.read(buffer)) > 0) md.update(buffer, 0, n);
+		} finally {
+			in.close();
+		}
+		return hex(md.digest());
+	}
+
+	private static MessageDigest sha1() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Every Java platform is required to support SHA-1.", e);
+		}
+	}
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private static String hex(byte[] b) {
+		char[] c = new char[2*b.length];
+		for (int i = 0; i < b.length; i++) {
+			c[2*i] = HEX[(b[i] >> 4) & 0xF];
+			c[2*i+1] = HEX[b[i] & 0xF];
+		}
+		return new String(c);
+	}
+}
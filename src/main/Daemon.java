@@ -0,0 +1,315 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * The {@code Daemon} class keeps the program running, and resizes one resourcepack after another, as jobs are given to it.
+ * <p>Every job runs in the same program, so the code is already compiled by the JIT, and the worker threads, filter kernels and compressors of earlier jobs are used again.
+ * Start it with "{@code java main.Main --daemon}", followed by any of:
+ * <ul>
+ * 	<li>"{@code spool=(folder)}" : the spool folder to take jobs from. Default: "{@code src/spool}".</li>
+ * 	<li>"{@code port=(number)}" : also take jobs from a socket on this port, only reachable from this computer. Default: none.</li>
+ * </ul>
+ * </p>
+ * <p>A job is a list of options, in the "{@code name = value}" format of a ".properties" file, i.e.:
+ * <pre>
+ * pack = /packs/Faithful.zip
+ * sizes = 4,8
+ * entity = true
+ * name_out = /packs/out/Faithful
+ * </pre>
+ * Each option has the same name as in {@link Main}, and is checked against the range of its annotation before the job runs (see {@link Options#set(String, String)}).
+ * Options that are not given keep the value written in {@link Main}. {@link Main#pack} and {@link Main#name_out} may be absolute paths.</p>
+ * <p>Jobs are run one at a time, in the order they arrive:
+ * <ul>
+ * 	<li>From the spool folder: every "{@code (name).job}" file. While it runs, it is renamed to "{@code (name).running}", and then to "{@code (name).done}" or "{@code (name).failed}".
+ * 	The result is written next to it, as "{@code (name).result.json}".</li>
+ * 	<li>From the socket: the options, followed by an empty line (or the end of the stream). The result is written back on the same connection, which is then closed.</li>
+ * </ul>
+ * </p>
+ * <p>The result of a job is a JSON object with its "status" ("done", "invalid" if an option is not valid, or "failed"), the "error" if there is one,
+ * and the {@link RunReport} of the run.</p>
+ */
+public class Daemon {
+
+	private static final long SPOOL_INTERVAL = 1000; // How often the spool folder is checked for new jobs, in milliseconds
+
+	private final File spool;
+	private final BlockingQueue<Job> jobs = new LinkedBlockingQueue<Job>();
+	private final ExecutorService pool = Executors.newCachedThreadPool(); // Shared by every job, so that worker threads are used again
+
+	/**
+	 * A single job, from the spool folder or from the socket.
+	 */
+	private static class Job {
+		final String name;
+		final Properties spec;
+		final File file; // The ".running" file in the spool folder, or null
+		final Socket socket; // The connection to answer on, or null
+
+		Job(String name, Properties spec, File file, Socket socket) {
+			this.name = name;
+			this.spec = spec;
+			this.file = file;
+			this.socket = socket;
+		}
+	}
+
+	private Daemon(File spool) {
+		this.spool = spool;
+	}
+
+	/**
+	 * Runs the daemon until the program is stopped.
+	 * @param args "{@code spool=(folder)}" and "{@code port=(number)}", both optional.
+	 * @throws IOException If the spool folder or the socket cannot be opened.
+	 */
+	public static void main(String[] args) throws IOException {
+		File spool = new File(Main.loc + "/src/spool");
+		int port = 0;
+		for (String arg : args) {
+			if (arg.startsWith("spool=")) {
+				spool = new File(arg.substring(6));
+			} else if (arg.startsWith("port=")) {
+				try {
+					port = Integer.parseInt(arg.substring(5).trim());
+				} catch (NumberFormatException e) {
+					port = -1;
+				}
+				if (port <= 0 || port > 65535) throw new IllegalArgumentException("Argument \"" + arg + "\" is invalid. port must be an integer between 1 and 65535.");
+			} else {
+				throw new IllegalArgumentException("Argument \"" + arg + "\" is invalid. The daemon accepts spool=(folder) and port=(number).");
+			}
+		}
+		new Daemon(spool).run(port);
+	}
+
+	private void run(int port) throws IOException {
+		if (!spool.isDirectory() && !spool.mkdirs()) throw new IOException("Could not create the spool folder " + spool.getPath());
+		for (File f : list(".running")) { // Jobs that were running when the daemon was stopped are started again
+			f.renameTo(new File(spool, base(f, ".running") + ".job"));
+		}
+		Thread scanner = new Thread(new Runnable() {
+			public void run() {
+				scanSpool();
+			}
+		}, "spool");
+		scanner.setDaemon(true);
+		scanner.start();
+		System.out.println("Waiting for jobs in " + spool.getPath()); // Inform the user where to put jobs
+		if (port > 0) {
+			final ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+			Thread acceptor = new Thread(new Runnable() {
+				public void run() {
+					accept(server);
+				}
+			}, "socket");
+			acceptor.setDaemon(true);
+			acceptor.start();
+			System.out.println("Waiting for jobs on " + server.getInetAddress().getHostAddress() + ":" + port); // Inform the user where to send jobs
+		}
+
+		while (true) { // Run every job, one after another
+			Job job;
+			try {
+				job = jobs.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+			finish(job, runJob(job));
+		}
+	}
+
+	/**
+	 * Runs a single job.
+	 * <p>Anything the job throws only fails that job, even an {@link Error} (i.e. running out of memory on a large pack), since its memory is released once it is over.
+	 * Its output sinks are discarded by {@link Main#run(Options, ExecutorService)}. Only a {@link VirtualMachineError} that leaves the JVM itself broken is thrown on,
+	 * as every later job would fail as well.</p>
+	 * @return The result of the job.
+	 */
+	private Map<String, Object> runJob(Job job) {
+		Map<String, Object> result = new LinkedHashMap<String, Object>();
+		result.put("job", job.name);
+		result.put("started", new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss").format(new Date()));
+		System.out.println("Starting job " + job.name); // Inform the user which job is running
+		long time = System.currentTimeMillis();
+		Options options = Options.defaults();
+		try {
+			Map<String, String> values = new LinkedHashMap<String, String>();
+			for (String name : job.spec.stringPropertyNames()) values.put(name, job.spec.getProperty(name));
+			options.setAll(values);
+		} catch (IllegalArgumentException e) {
+			result.put("status", "invalid");
+			result.put("error", e.getMessage());
+			return result;
+		}
+		try {
+			RunReport report = Main.run(options, pool);
+			result.put("status", "done");
+			result.put("seconds", (System.currentTimeMillis() - time)/1000.0);
+			result.put("report", report.toJson());
+		} catch (Throwable e) {
+			if (e instanceof VirtualMachineError && !(e instanceof OutOfMemoryError) && !(e instanceof StackOverflowError)) throw (VirtualMachineError) e; // i.e. an InternalError
+			if (e instanceof Error) e.printStackTrace(); // Not an expected failure, show where it came from
+			result.put("status", "failed");
+			result.put("error", e.toString());
+			result.put("seconds", (System.currentTimeMillis() - time)/1000.0);
+		}
+		return result;
+	}
+
+	/**
+	 * Writes the result of a job to where the job came from.
+	 */
+	private void finish(Job job, Map<String, Object> result) {
+		String status = (String) result.get("status");
+		System.out.println("Job " + job.name + ": " + status + (result.containsKey("error") ? " (" + result.get("error") + ")" : "")); // Inform the user how the job went
+		byte[] json = Json.write(result).getBytes(StandardCharsets.UTF_8);
+		try {
+			if (job.file != null) {
+				write(new File(spool, job.name + ".result.json"), json);
+				job.file.renameTo(new File(spool, job.name + (status.equals("done") ? ".done" : ".failed")));
+			}
+			if (job.socket != null) {
+				try {
+					OutputStream out = job.socket.getOutputStream();
+					out.write(json);
+					out.flush();
+				} finally {
+					job.socket.close();
+				}
+			}
+		} catch (IOException e) {
+			System.out.println("Could not write the result of job " + job.name + ": " + e); // Inform the user, and carry on with the next job
+		}
+	}
+
+	/**
+	 * Checks the spool folder for new jobs, forever. A job is claimed by renaming it, so a job is never run twice.
+	 */
+	private void scanSpool() {
+		while (true) {
+			for (File f : list(".job")) {
+				String name = base(f, ".job");
+				File running = new File(spool, name + ".running");
+				if (!f.renameTo(running)) continue; // Gone, or claimed by someone else
+				Properties spec = new Properties();
+				try {
+					Reader r = new InputStreamReader(new FileInputStream(running), StandardCharsets.UTF_8);
+					try {
+						spec.load(r);
+					} finally {
+						r.close();
+					}
+				} catch (IOException e) {
+					System.out.println("Could not read job " + name + ": " + e); // Leave it as it is, and inform the user
+					continue;
+				}
+				jobs.add(new Job(name, spec, running, null));
+			}
+			try {
+				Thread.sleep(SPOOL_INTERVAL);
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Takes jobs from the socket, forever.
+	 */
+	private void accept(ServerSocket server) {
+		int n = 0;
+		while (true) {
+			final Socket socket;
+			try {
+				socket = server.accept();
+			} catch (IOException e) {
+				System.out.println("Stopped taking jobs from the socket: " + e); // Inform the user
+				return;
+			}
+			final String name = "socket-" + (++n);
+			Thread reader = new Thread(new Runnable() { // Read the job on its own thread, so that a slow client does not hold up the others
+				public void run() {
+					try {
+						BufferedReader r = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+						StringBuilder text = new StringBuilder();
+						String line = r.readLine();
+						while (line != null && !line.trim().isEmpty()) { // Until an empty line, or the end of the stream
+							text.append(line).append('\n');
+							line = r.readLine();
+						}
+						Properties spec = new Properties();
+						spec.load(new StringReader(text.toString()));
+						jobs.add(new Job(name, spec, null, socket));
+					} catch (IOException e) {
+						try {
+							socket.close();
+						} catch (IOException ignored) {
+							// Already closed
+						}
+					}
+				}
+			}, name);
+			reader.setDaemon(true);
+			reader.start();
+		}
+	}
+
+	/**
+	 * @return Every file in the spool folder that ends with {@code suffix}, oldest first.
+	 */
+	private File[] list(String suffix) {
+		File[] all = spool.listFiles();
+		if (all == null) return new File[0];
+		ArrayList<File> found = new ArrayList<File>();
+		for (File f : all) {
+			if (f.isFile() && f.getName().endsWith(suffix)) found.add(f);
+		}
+		File[] files = found.toArray(new File[found.size()]);
+		Arrays.sort(files, new Comparator<File>() {
+			public int compare(File a, File b) {
+				int c = Long.compare(a.lastModified(), b.lastModified());
+				return c != 0 ? c : a.getName().compareTo(b.getName());
+			}
+		});
+		return files;
+	}
+
+	private static String base(File f, String suffix) {
+		return f.getName().substring(0, f.getName().length() - suffix.length());
+	}
+
+	private static void write(File f, byte[] data) throws IOException {
+		FileOutputStream out = new FileOutputStream(f);
+		try {
+			out.write(data);
+		} finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package main;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code FolderSink} writes every file of the output resourcepack as a loose file inside of a folder.
+ * <p>Files with the same content as an earlier file are written as hard links to it, when the file system allows it (see {@link #copy(String, String)}).
+ * Because of that, a file is always replaced, rather than written over, so that the files it is linked to keep their content.</p>
+ * <p>Each folder is created (or found to exist) only once, for the first file that goes in it. Files are written with a {@link FileChannel}, as a new file;
+ * only if there already is a file with that name (i.e. from a previous run) is it deleted first.</p>
+ * <p>If {@code fsync} is {@code true}, {@link #close()} forces every written file to the disk, once, after the whole resourcepack is written, instead of after every file.</p>
+ */
+public class FolderSink implements PackSink {
+
+	private final File root; // The root folder of the output resourcepack
+	private final boolean fsync;
+	private final Set<String> folders = ConcurrentHashMap.newKeySet(); // The folders that are known to exist, relative to (root)
+	private final ArrayList<Path> written = new ArrayList<Path>(); // Every file written, if (fsync) is true
+
+	/**
+	 * @param root The root folder of the output resourcepack.
+	 * @param fsync Whether {@link #close()} forces every written file to the disk. See {@link Main#fsync}.
+	 */
+	public FolderSink(File root, boolean fsync) {
+		this.root = root;
+		this.fsync = fsync;
+	}
+
+	public void write(String path, byte[] data) throws IOException {
+		Path outputfile = create(path);
+		FileChannel out = open(path, outputfile);
+		try {
+			ByteBuffer b = ByteBuffer.wrap(data);
+			while (b.hasRemaining()) out.write(b);
+		} finally {
+			out.close();
+		}
+		written(outputfile);
+	}
+
+	/**
+	 * Copies the file with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}, which lets the operating system copy it without it ever
+	 * passing through this program. A file inside of a ".zip" is inflated straight into the output file instead.
+	 */
+	public void transfer(String path, Path source) throws IOException {
+		Path outputfile = create(path);
+		ReadableByteChannel in = Files.newByteChannel(source);
+		try {
+			FileChannel out = open(path, outputfile);
+			try {
+				long size = Files.size(source), done = 0;
+				while (done < size) {
+					long n = in instanceof FileChannel ? ((FileChannel) in).transferTo(done, size - done, out) : out.transferFrom(in, done, size - done);
+					if (n <= 0) break; // The file is shorter than its size, i.e. it changed since
+					done += n;
+				}
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+		written(outputfile);
+	}
+
+	public void copy(String path, String original) throws IOException {
+		Path outputfile = create(path);
+		Path originalfile = new File(root, original).toPath();
+		try {
+			try {
+				Files.createLink(outputfile, originalfile);
+			} catch (FileAlreadyExistsException e) {
+				Files.delete(outputfile);
+				Files.createLink(outputfile, originalfile);
+			}
+		} catch (IOException | UnsupportedOperationException e) { // This file system has no hard links (or the original is on another drive), copy it instead
+			if (!Files.isRegularFile(originalfile)) throw new IOException("Cannot copy /" + original + ", it was never written.", e);
+			transfer(path, originalfile);
+		}
+	}
+
+	/**
+	 * Opens a new file to write to. Never writes into an existing file, it may be linked to another one.
+	 */
+	private FileChannel open(String path, Path outputfile) throws IOException {
+		try {
+			return FileChannel.open(outputfile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+		} catch (FileAlreadyExistsException e) { // From a previous run, replace it
+			Files.delete(outputfile);
+		} catch (NoSuchFileException e) { // The folder was deleted since it was created (i.e. by hand, while watching), create it again
+			folders.clear();
+			create(path);
+		}
+		return FileChannel.open(outputfile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+	}
+
+	/**
+	 * Creates the folder that a file goes in, unless it was already created (or found) for an earlier file.
+	 */
+	private Path create(String path) throws IOException {
+		int slash = path.lastIndexOf('/');
+		String dir = slash < 0 ? "" : path.substring(0, slash);
+		if (!folders.contains(dir)) { // If the folder the file will go in does not exist, create it
+			Files.createDirectories(new File(root, dir).toPath());
+			folders.add(dir);
+		}
+		return new File(root, path).toPath();
+	}
+
+	private void written(Path f) {
+		if (!fsync) return;
+		synchronized (written) {
+			written.add(f);
+		}
+	}
+
+	public void flush() {
+		// Every file is already complete
+	}
+
+	/**
+	 * Every file that was written is complete, and may be kept. A later incremental run finds out which ones are still up to date (see {@link BuildManifest}).
+	 */
+	public void discard() {
+		synchronized (written) {
+			written.clear();
+		}
+	}
+
+	public void close() throws IOException {
+		if (!fsync) return; // Every file is already complete
+		synchronized (written) {
+			for (Path f : written) { // Force every file to the disk, once
+				FileChannel c;
+				try {
+					c = FileChannel.open(f, StandardOpenOption.WRITE);
+				} catch (NoSuchFileException e) { // Deleted since, i.e. replaced by a later file
+					continue;
+				}
+				try {
+					c.force(true);
+				} finally {
+					c.close();
+				}
+			}
+			written.clear();
+		}
+	}
+}
@@ -0,0 +1,255 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code Json} class reads and writes the small JSON files used by resourcepacks, i.e. ".mcmeta" files.
+ * <p>Objects are read as {@link LinkedHashMap}s (so the order of keys is kept), arrays as {@link ArrayList}s, numbers as {@link Long} or {@link Double},
+ * and {@code true}, {@code false} and {@code null} as {@link Boolean}s and {@code null}.</p>
+ */
+public class Json {
+
+	private final String s;
+	private int i;
+
+	private Json(String s) {
+		this.s = s;
+	}
+
+	/**
+	 * Reads a JSON value.
+	 * <p>A byte order mark (U+FEFF) at the start of the text is skipped, since many editors on Windows write one at the start of ".mcmeta" files.</p>
+	 * @param text The JSON text.
+	 * @return The value.
+	 * @throws IllegalArgumentException If the text is not valid JSON.
+	 */
+	public static Object parse(String text) {
+		Json p = new Json(text);
+		if (text.startsWith("\uFEFF")) p.i = 1; // Skip the byte order mark
+		Object value = p.value();
+		p.space();
+		if (p.i < p.s.length()) throw p.error("Unexpected text after the end");
+		return value;
+	}
+
+	/**
+	 * Writes a JSON value, with one tab of indentation for each level, and "\r\n" line endings (the same as [pack.mcmeta]).
+	 * Objects inside of arrays are written on a single line, with one element of the array on each line.
+	 * @param value The value, made of the same types that {@link #parse(String)} returns. Any {@link Number} may be used.
+	 * @return The JSON text.
+	 */
+	public static String write(Object value) {
+		StringBuilder sb = new StringBuilder();
+		write(value, sb, 0);
+		return sb.append("\r\n").toString();
+	}
+
+	/**
+	 * @param indent The indentation of the current line, or -1 to write everything on a single line.
+	 */
+	private static void write(Object value, StringBuilder sb, int indent) {
+		if (value instanceof Map) {
+			Map<?, ?> map = (Map<?, ?>) value;
+			if (map.isEmpty()) {
+				sb.append("{}");
+				return;
+			}
+			sb.append("{");
+			boolean first = true;
+			for (Map.Entry<?, ?> e : map.entrySet()) {
+				if (indent < 0) {
+					sb.append(first ? "" : ", ");
+				} else {
+					sb.append(first ? "\r\n" : ",\r\n");
+					tabs(sb, indent+1);
+				}
+				first = false;
+				string(String.valueOf(e.getKey()), sb);
+				sb.append(": ");
+				write(e.getValue(), sb, indent < 0 ? -1 : indent+1);
+			}
+			if (indent >= 0) {
+				sb.append("\r\n");
+				tabs(sb, indent);
+			}
+			sb.append("}");
+		} else if (value instanceof List) {
+			List<?> list = (List<?>) value;
+			boolean lines = false; // Arrays of objects are written with one element on each line
+			for (Object o : list) lines |= o instanceof Map && indent >= 0;
+			sb.append("[");
+			for (int j = 0; j < list.size(); j++) {
+				if (lines) {
+					sb.append(j > 0 ? ",\r\n" : "\r\n");
+					tabs(sb, indent+1);
+				} else if (j > 0) {
+					sb.append(", ");
+				}
+				write(list.get(j), sb, -1);
+			}
+			if (lines) {
+				sb.append("\r\n");
+				tabs(sb, indent);
+			}
+			sb.append("]");
+		} else if (value instanceof String) {
+			string((String) value, sb);
+		} else if (value instanceof Double || value instanceof Float) {
+			double d = ((Number) value).doubleValue();
+			if (d == Math.rint(d) && !Double.isInfinite(d)) sb.append((long) d);
+			else sb.append(d);
+		} else {
+			sb.append(String.valueOf(value)); // Integers, booleans and null
+		}
+	}
+
+	private static void tabs(StringBuilder sb, int n) {
+		for (int j = 0; j < n; j++) sb.append('\t');
+	}
+
+	private static void string(String v, StringBuilder sb) {
+		sb.append('"');
+		for (int j = 0; j < v.length(); j++) {
+			char c = v.charAt(j);
+			switch (c) {
+			case '"': sb.append("\\\""); break;
+			case '\\': sb.append("\\\\"); break;
+			case '\n': sb.append("\\n"); break;
+			case '\r': sb.append("\\r"); break;
+			case '\t': sb.append("\\t"); break;
+			default:
+				if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+				else sb.append(c);
+			}
+		}
+		sb.append('"');
+	}
+
+	private Object value() {
+		space();
+		if (i >= s.length()) throw error("Unexpected end");
+		char c = s.charAt(i);
+		switch (c) {
+		case '{': return object();
+		case '[': return array();
+		case '"': return string();
+		case 't': return word("true", Boolean.TRUE);
+		case 'f': return word("false", Boolean.FALSE);
+		case 'n': return word("null", null);
+		default: return number();
+		}
+	}
+
+	private Map<String, Object> object() {
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		i++; // '{'
+		space();
+		if (peek() == '}') {
+			i++;
+			return map;
+		}
+		while (true) {
+			space();
+			if (peek() != '"') throw error("Expected a key");
+			String key = string();
+			space();
+			expect(':');
+			map.put(key, value());
+			space();
+			if (peek() == ',') {
+				i++;
+				continue;
+			}
+			expect('}');
+			return map;
+		}
+	}
+
+	private List<Object> array() {
+		List<Object> list = new ArrayList<Object>();
+		i++; // '['
+		space();
+		if (peek() == ']') {
+			i++;
+			return list;
+		}
+		while (true) {
+			list.add(value());
+			space();
+			if (peek() == ',') {
+				i++;
+				continue;
+			}
+			expect(']');
+			return list;
+		}
+	}
+
+	private String string() {
+		StringBuilder sb = new StringBuilder();
+		i++; // '"'
+		while (true) {
+			if (i >= s.length()) throw error("Unterminated string");
+			char c = s.charAt(i++);
+			if (c == '"') return sb.toString();
+			if (c != '\\') {
+				sb.append(c);
+				continue;
+			}
+			if (i >= s.length()) throw error("Unterminated string");
+			char e = s.charAt(i++);
+			switch (e) {
+			case 'b': sb.append('\b'); break;
+			case 'f': sb.append('\f'); break;
+			case 'n': sb.append('\n'); break;
+			case 'r': sb.append('\r'); break;
+			case 't': sb.append('\t'); break;
+			case 'u':
+				if (i+4 > s.length()) throw error("Bad unicode escape");
+				sb.append((char) Integer.parseInt(s.substring(i, i+4), 16));
+				i += 4;
+				break;
+			default: sb.append(e); // '"', '\\' and '/'
+			}
+		}
+	}
+
+	private Object word(String w, Object value) {
+		if (!s.startsWith(w, i)) throw error("Unexpected text");
+		i += w.length();
+		return value;
+	}
+
+	private Number number() {
+		int start = i;
+		while (i < s.length() && "+-0123456789.eE".indexOf(s.charAt(i)) >= 0) i++;
+		String n = s.substring(start, i);
+		if (n.isEmpty()) throw error("Unexpected text");
+		try {
+			if (n.indexOf('.') < 0 && n.indexOf('e') < 0 && n.indexOf('E') < 0) return Long.parseLong(n);
+			return Double.parseDouble(n);
+		} catch (NumberFormatException e) {
+			throw error("Bad number \"" + n + "\"");
+		}
+	}
+
+	private char peek() {
+		return i < s.length() ? s.charAt(i) : 0;
+	}
+
+	private void expect(char c) {
+		if (peek() != c) throw error("Expected '" + c + "'");
+		i++;
+	}
+
+	private void space() {
+		while (i < s.length() && Character.isWhitespace(s.charAt(i))) i++;
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(message + " at character " + i + " of JSON text.");
+	}
+}
@@ -1,548 +1,898 @@
-package main;
-
-import java.awt.AlphaComposite;
-import java.awt.Graphics2D;
-import java.awt.Image;
-import java.awt.RenderingHints;
-import java.awt.image.BufferedImage;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.util.ArrayList;
-
-import javax.imageio.ImageIO;
-
-import annotations.*;
-
-/**
- * The {@code Main} class of the {@code Minecraft_Texture_Resizer} program.
- * <p>Options that the user may choose to modify are :
- * 	<ul>
- * 		<li>{@link #size} : The size that textures will be resized to. Default: 16, Minimum: 1, Maximum: 32767 (inclusive).</li>
- * 		<li>{@link #useScale} : Whether or not a scaling should be applied to non-square, 16x16 textures.</li>
- * 		<li>{@link #block} : Whether or not to resize block textures.</li>
- * 		<li>{@link #effect} : Whether or not to resize effect textures. (This only includes "dither.png", which is an unused texture.)</li>
- * 		<li>{@link #entity} : Whether or not to resize entity textures.</li>
- * 		<li>{@link #environment} : Whether or not to resize environment textures.</li>
- * 		<li>{@link #font} : Whether or not to resize font textures.</li>
- * 		<li>{@link #gui} : Whether or not to resize gui textures.</li>
- * 		<li>{@link #item} : Whether or not to resize item textures.</li>
- * 		<li>{@link #map} : Whether or not to resize map textures.</li>
- * 		<li>{@link #misc} : Whether or not to resize misc (miscellaneous) textures.</li>
- * 		<li>{@link #mob_effect} : Whether or not to resize mob_effect (status effect icon) textures.</li>
- * 		<li>{@link #models} : Whether or not to resize models (armor) textures.</li>
- * 		<li>{@link #painting} : Whether or not to resize painting textures.</li>
- * 		<li>{@link #particle} : Whether or not to resize particle textures.</li>
- * 		<li>{@link #name_out} : The name that the output resourcepack should assume upon completion. If left blank, will follow the format of "Resized Textures NxN" where 'N' is {@link size}.</li>
- * 		<li>{@link #pack} : The name of the resourcepack to use as a reference for original images.</li>
- * 		<li>{@link #pack_format} : The version that this resourcepack is intended for. Before modifying, fully read the {@link #pack_format} description.</li>
- * 	</ul>
- * </p>
- */
-public class Main {
-	
-	/**
-	 * The {@code size} variable represents the size that textures are meant to be resized to. 
-	 * 
-	 * <p>The {@code size} variable is of the {@link Short} type and expects an integer value between 1 and 32767.</p>
-	 * <p>Default value: 16, min value: 1, max value: 32767</p>
-	 * <p><strong>NOTE:</strong> Larger numbers run slower and may cause crashes.</p>
-	 */
-	@ShortRangeDefaultValue(value = 16, minimum = 1, maximum = 32767)
-	public static final short size = 16;
-	
-	/**
-	 * The {@code useScale} variable determines if the resizing program should resize images by scale.
-	 * <p>If {@code useScale = true}, images will be resized to {@code (}{@link #scale}{@code *w, }{@link #scale}{@code *h)}.</p>
-	 * <p>If {@code useScale = false}, images will be resized to {@code (}{@link #size}{@code , }{@link #size}{@code )}.</p>
-	 */
-	@BooleanDefaultValue(true)
-	public static final boolean useScale = true;
-	
-	/**
-	 * The {@code block} variable determines if images in {@code pack/assets/minecraft/textures/block} should be resized.
-	 * <hr />
-	 * <p>Examples:
-	 * 	<li>Dirt</li>
-	 * 	<li>Stone</li>
-	 * 	<li>Bedrock</li>
-	 * </p>
-	 */
-	@BooleanDefaultValue(true)
-	public static final boolean block = true;
-	
-	/**
-	 * The {@code effect} variable determines if images in {@code pack/assets/minecraft/textures/effect} should be resized.
-	 * <hr />
-	 * <p>This only has "dither"</p>
-	 */
-	@BooleanDefaultValue(false)
-	public static final boolean effect = false;
-	
-	/**
-	 * The {@code entity} variable determines if images in {@code pack/assets/minecraft/textures/entity} should be resized.
-	 * <hr />
-	 * <p>Examples:
-	 * 	<li>Pig</li>
-	 * 	<li>Creeper</li>
-	 * 	<li>Armor Stand</li>
-	 * 	<li>Tile entities, including bells and banners</li>
-	 * </p>
-	 */
-	@BooleanDefaultValue(false)
-	public static final boolean entity = false;
-	
-	/**
-	 * The {@code environment} variable determines if images in {@code pack/assets/minecraft/textures/environment} should be resized.
-	 * <hr />
-	 * <p>Examples:
-	 * 	<li>Clouds</li>
-	 * 	<li>Rain</li>
-	 * 	<li>Sun</li>
-	 * 	<li>Moon</li>
-	 * </p>
-	 */
-	@BooleanDefaultValue(false)
-	public static final boolean environment = false;
-	
-	/**
-	 * The {@code font} variable determines if images in {@code pack/assets/minecraft/textures/font} should be resized.
-	 * <hr />
-	 * <p><strong>NOTE:</strong> Will resize <em>all unicode characters</em>, often rendering text <em>unreadable</em>.</p>
-	 */
-	@BooleanDefaultValue(false)
-	public static final boolean font = false;
-	
-	/**
-	 * The {@code gui} variable determines if images in {@code pack/assets/minecraft/textures/gui} should be resized.
-	 * <hr />
-	 * <p><strong>NOTE:</strong> This often makes playing a bit difficult, as certain gui elements become difficult to see/use.
-	 * <p>Examples:
-	 * 	<li>Inventory</li>
-	 * 	<li>Game Menu (pause menu)</li>
-	 * 	<li>Title screen</li>
-	 * </p>
-	 */
-	@BooleanDefaultValue(false)
-	public static final boolean gui = false;
-	
-	/**
-	 * The {@code item} variable determines if images in {@code pack/assets/minecraft/textures/item} should be resized.
-	 * <hr />
-	 * <p>Examples:
-	 * 	<li>Dirt</li>
-	 * 	<li>Swords</li>
-	 * 	<li>Food</li>
-	 * </p>
-	 */
-	@BooleanDefaultValue(true)
-	public static final boolean item = true;
-	
-	/**
-	 * The {@code map} variable determines if images in {@code pack/assets/minecraft/textures/map} should be resized.
-	 * <hr />
-	 * <p>Examples:
-	 * 	<li>Map background texture</li>
-	 * 	<li>Map Icons</li>
-	 * </p>
-	 */
-	@BooleanDefaultValue(false)
-	public static final boolean map = false;
-	
-	/**
-	 * The {@code misc} variable determines if images in {@code pack/assets/minecraft/textures/misc} should be resized.
-	 * <hr />
-	 * <p>Examples:
-	 * 	<li>Underwater Texture</li>
-	 * 	<li>Pumkpin Overlay</li>
-	 * 	<li>Vignette Effect</li>
-	 * </p>
-	 */
-	@BooleanDefaultValue(false)
-	public static final boolean misc = false;
-	
-	/**
-	 * The {@code mob_effect} variable determines if images in {@code pack/assets/minecraft/textures/mob_effect} should be resized.
-	 * <hr />
-	 * <p>Effect icons such as:
-	 * 	<li>Regeneration</li>
-	 * 	<li>Slowness</li>
-	 * 	<li>Haste</li>
-	 * </p>
-	 */
-	@BooleanDefaultValue(false)
-	public static final boolean mob_effect = false;
-	
-	/**
-	 * The {@code models} variable determines if images in {@code pack/assets/minecraft/textures/models} should be resized.
-	 * <hr />
-	 * <p>All armor models (when worn), such as:
-	 * 	<li>Leather Armor</li>
-	 * 	<li>Iron Armor</li>
-	 * 	<li>Chainmail Armor</li>
-	 * </p>
-	 */
-	@BooleanDefaultValue(false)
-	public static final boolean models = false; // i.e. armor
-	
-	/**
-	 * The {@code painting} variable determines if images in {@code pack/assets/minecraft/textures/painting} should be resized.
-	 * <hr />
-	 * <p>Examples:
-	 * 	<li>Wanderer</li>
-	 * 	<li>Wither</li>
-	 * 	<li>Burning Skull</li>
-	 * </p>
-	 */
-	@BooleanDefaultValue(false)
-	public static final boolean painting = false;
-	
-	/**
-	 * The {@code particle} variable determines if images in {@code pack/assets/minecraft/textures/particle} should be resized.
-	 * <hr />
-	 * <p>All particles such as:
-	 * 	<li>Sword Sweep</li>
-	 * 	<li>Enchanting Table</li>
-	 * 	<li>Water Drip</li>
-	 * </p>
-	 */
-	@BooleanDefaultValue(false)
-	public static final boolean particle = false;
-	
-	/**
-	 * The {@code name_out} variable represents the name of the output folder that contains the resized textures.
-	 * <p>If {@code name_out} is empty ("") or null (null), then the output folder will follow the name structure "{@code Resized Textures 16x16}", if {@code 16} is the {@link #size} of the output textures.
-	 * <hr />
-	 * <p><strong>Naming conventions:</strong> Do not use any of the following characters in the {@code name_out} variable's value:
-	 * <li>Percent (%)</li>
-	 * <li>Ampersand (&)</li>
-	 * <li>Asterisk (*)</li>
-	 * <li>Angle brackets (<>)</li>
-	 * <li>Backslash (\)</li>
-	 * <li>Colon (:)</li>
-	 * <li>Question mark (?)</li>
-	 * <li>Slash (/)</li>
-	 * <li>Pipe (|)</li>
-	 * <li>Quotation mark (")</li>
-	 */
-	@StringDefaultValue("")
-	public static final String name_out = "";
-	
-	/**
-	 * The {@code pack} variable determines which resourcepack to take as an input from the resources folder.
-	 */
-	@StringDefaultValue("Default")
-	public static final String pack = "Default";
-	
-	/**
-	 * <em>Advanced users only:</em>
-	 * <p>The {@code pack_format} variable represents the "pack_format" that the pack.mcmeta file uses.</p>
-	 * <hr />
-	 * <p>{@code pack_format} value uses by number:
-	 * <ul>
-	 * 	<li>{@code pack_format} = 1 is used for Java Editions 1.6 - 1.8</li>
-	 * 	<li>{@code pack_format} = 2 is used for Java Editions 1.9 - 1.10</li>
-	 * 	<li>{@code pack_format} = 3 is used for Java Editions 1.11 - 1.12</li>
-	 * 	<li>{@code pack_format} = 4 is used for Java Editions 1.13 - 1.14</li>
-	 * 	<li>{@code pack_format} = 5 is used for Java Edition 1.15</li>
-	 * </ul>
-	 */
-	@ShortRangeDefaultValue(value = 4, minimum = 1, maximum = 5)
-	public static final short pack_format = 4;
-	
-	//// ====-====-====-====-====-====-====-====-====-====-====-====-====-====-====-==== ////
-	// OTHER REQUISITES, DO NOT TOUCH!
-	/**
-	 * <strong>DO NOT MODIFY</strong>
-	 * <p>The {@code scale} variable is used to sclae the {@code width} and {@code height} of images, if {@link #useScale} is {@code true}.</p>
-	 */
-	public static final double scale = 16.0/size;
-	
-	/**
-	 * <strong>DO NOT MODIFY</strong>
-	 * <p>The {@code timeInit} variable stores the initialization time of the program as a {@code long} type variable.</p>
-	 * <p>This is used to calculate the time that the program was active upon termination.</p>
-	 */
-	public static final long timeInit = System.currentTimeMillis();
-	
-	/**
-	 * <strong>DO NOT MODIFY</strong>
-	 * <p>The {@code loc} variable stores the location of this project's source folder (Minecraft_Texture_Resizer) on this device's storage.</p>
-	 * <p>This is used to make absolute references to local resources, i.e. taking the input resourcepack, and the output images and resourcepack.</p>
-	 */
-	public static final String loc = new File("").getAbsolutePath().replace("\\", "/");
-	
-	/**
-	 * <strong>DO NOT MODIFY :</strong> Although this is similar to many of the other optional settings, this must be false due to occasional issues with game crashes.
-	 * <p>The {@code colormap} variable determines if images in {@code pack/assets/minecraft/textures/colormap} should be resized.</p>
-	 * <hr />
-	 * <p>Examples:
-	 * 	<ul>
-	 * 		<li>name1</li>
-	 * 		<li>name2</li>
-	 * 	</ul>
-	 * </p>
-	 */
-	public static final boolean colormap = false;
-	
-	/**
-	 * The {@code main} method of the {@code Minecraft_Texture_Resizer} program.
-	 * @param args
-	 * @throws IOException
-	 */
-	@SuppressWarnings("unused")
-	public static void main(String[] args) throws IOException {
-		if (size <= 0) throw new IllegalArgumentException("Value for size " + size + " is invalid. size must be an integer greater than 0. Values above 16 will not look very different."); // Size cannot be 0 or smaller
-		
-		// Find the output location
-		String locOut;
-		if (name_out != null && !name_out.equals("")) {
-			locOut = loc + "\\src\\out\\" + name_out + "\\";
-		} else {
-			locOut = loc + "\\src\\out\\Resized Textures " + size + "x" + size + "\\";
-		}
-		locOut.replace('\\', '/');
-		if (!new File(locOut).exists()) { // if the folder named (name_out) doesn't exist in "(loc)/src/out/"
-			new File(locOut).mkdirs(); // create it.
-		}
-		
-		// Create all needed lists
-		ArrayList<File> source_files = new ArrayList<File>();
-		ArrayList<String> imgs_loc = new ArrayList<String>();
-		ArrayList<BufferedImage> imgs_in = new ArrayList<BufferedImage>();
-		ArrayList<File> unused_files = new ArrayList<File>(); // used for non-image files, i.e. mcmeta files
-		
-		// Get the file from the root, in this case, (pack)
-		source_files.add(new File(loc + "/src/resources/" + pack));
-		System.out.println(loc + "/src/resources/" + pack);
-		
-		// Recursively get all images into imgs_in (BufferedImage format)
-		for (int i = 0; i < source_files.size(); i++) { // For each file in (source_files),
-			File f = source_files.get(i); // Make an easily referenced variable
-			if(f.isDirectory()) { // if (f) is a directory
-				String s = f.getAbsolutePath().substring(loc.length()).replace('\\', '/'); // Get the pathname (to s)
-				if (!block && s.endsWith("block")) { // If (s) ends with block (is the block directory)
-					source_files.remove(i); // Remove it
-					i--; // Go back one step to account for list shortening
-					System.out.println("Removed block."); // Inform the user
-					continue; // Skip every other "if" statement; this has already been removed. Skip to the next iteration of the loop.
-				}
-				if (!colormap && s.endsWith("colormap")) { // If (s) ends with colormap (is the colormap directory)
-					source_files.remove(i); // Remove it
-					i--; // Go back one step to account for list shortening
-					System.out.println("Removed colormap."); // Inform the user
-					continue; // Skip every other "if" statement; this has already been removed. Skip to the next iteration of the loop.
-				}
-				if (!effect && s.endsWith("effect")) { // If (s) ends with effect (is the effect directory)
-					source_files.remove(i); // Remove it
-					i--; // Go back one step to account for list shortening
-					System.out.println("Removed effect."); // Inform the user
-					continue; // Skip every other "if" statement; this has already been removed. Skip to the next iteration of the loop.
-				}
-				if (!entity && s.endsWith("entity")) { // If (s) ends with entity (is the entity directory)
-					source_files.remove(i); // Remove it
-					i--; // Go back one step to account for list shortening
-					System.out.println("Removed entity."); // Inform the user
-					continue; // Skip every other "if" statement; this has already been removed. Skip to the next iteration of the loop.
-				}
-				if (!environment && s.endsWith("environment")) { // If (s) ends with environment (is the environment directory)
-					source_files.remove(i); // Remove it
-					i--; // Go back one step to account for list shortening
-					System.out.println("Removed environment."); // Inform the user
-					continue; // Skip every other "if" statement; this has already been removed. Skip to the next iteration of the loop.
-				}
-				if (!font && s.endsWith("font")) { // If (s) ends with font (is the font directory)
-					source_files.remove(i); // Remove it
-					i--; // Go back one step to account for list shortening
-					System.out.println("Removed font."); // Inform the user
-					continue; // Skip every other "if" statement; this has already been removed. Skip to the next iteration of the loop.
-				}
-				if (!gui && s.endsWith("gui")) { // If (s) ends with gui (is the gui directory)
-					source_files.remove(i); // Remove it
-					i--; // Go back one step to account for list shortening
-					System.out.println("Removed gui."); // Inform the user
-					continue; // Skip every other "if" statement; this has already been removed. Skip to the next iteration of the loop.
-				}
-				if (!item && s.endsWith("item")) { // If (s) ends with item (is the item directory)
-					source_files.remove(i); // Remove it
-					i--; // Go back one step to account for list shortening
-					System.out.println("Removed item."); // Inform the user
-					continue; // Skip every other "if" statement; this has already been removed. Skip to the next iteration of the loop.
-				}
-				if (!map && s.endsWith("map")) { // If (s) ends with map (is the map directory)
-					source_files.remove(i); // Remove it
-					i--; // Go back one step to account for list shortening
-					System.out.println("Removed map."); // Inform the user
-					continue; // Skip every other "if" statement; this has already been removed. Skip to the next iteration of the loop.
-				}
-				if (!misc && s.endsWith("misc")) { // If (s) ends with misc (is the misc directory)
-					source_files.remove(i); // Remove it
-					i--; // Go back one step to account for list shortening
-					System.out.println("Removed misc."); // Inform the user
-					continue; // Skip every other "if" statement; this has already been removed. Skip to the next iteration of the loop.
-				}
-				if (!mob_effect && s.endsWith("mob_effect")) { // If (s) ends with mob_effect (is the mob_effect directory)
-					source_files.remove(i); // Remove it
-					i--; // Go back one step to account for list shortening
-					System.out.println("Removed mob_effect."); // Inform the user
-					continue; // Skip every other "if" statement; this has already been removed. Skip to the next iteration of the loop.
-				}
-				if (!models && s.endsWith("models")) { // If (s) ends with models (is the models directory)
-					source_files.remove(i); // Remove it
-					i--; // Go back one step to account for list shortening
-					System.out.println("Removed models."); // Inform the user
-					continue; // Skip every other "if" statement; this has already been removed. Skip to the next iteration of the loop.
-				}
-				if (!painting && s.endsWith("painting")) { // If (s) ends with painting (is the painting directory)
-					source_files.remove(i); // Remove it
-					i--; // Go back one step to account for list shortening
-					System.out.println("Removed painting."); // Inform the user
-					continue; // Skip every other "if" statement; this has already been removed. Skip to the next iteration of the loop.
-				}
-				if (!particle && s.endsWith("particle")) { // If (s) ends with particle (is the particle directory)
-					source_files.remove(i); // Remove it
-					i--; // Go back one step to account for list shortening
-					System.out.println("Removed particle."); // Inform the user
-					continue; // Skip every other "if" statement; this has already been removed. Skip to the next iteration of the loop.
-				}
-
-				appendFileArrayToArrayList(source_files.remove(i).listFiles(), source_files); // Move contents from this directory into (source_files)
-				i--; // Go back one step to account for list shortening
-				continue; // Skip to the next iteration of the loop.
-			} else { // if source_files.get(i) is NOT a directory (i.e. it's a file)
-		        try { // Prepare to catch an error when trying to
-					BufferedImage img = ImageIO.read(source_files.get(i)); // read this file as an image
-					if (img != null) { // If this is indeed an image,
-						imgs_in.add(img); // Add this file to (imgs_in), as a BufferedImage type. (Create a BufferedImage from f, and add it to the list)
-						imgs_loc.add(source_files.get(i).getAbsolutePath()); // Make sure to add the location of the image in the corresponding location in (imgs_loc)
-					} else { // If this is not an image
-						unused_files.add(source_files.get(i)); // This file is not an image, keep it for later
-						source_files.get(i); // Get rid of this file
-					}
-					source_files.remove(i); // Get rid of this file from (source_files)
-					i--; // Go back one step to account for list shortening
-					continue; // Skip to the next iteration of the loop.
-				} catch (IOException e) { // In case there was either an (IOException)
-					e.printStackTrace();
-					i--;
-				}
-			}
-		}
-		
-		// Create the (count) variable to represent the number of the total of files
-		int count = imgs_in.size()+unused_files.size();
-		
-		System.out.println("Number of images to resize: " + count); // Inform the user about the quantity of images collected
-		
-		for (int i = 0; i < imgs_in.size(); i++) { // For each image (BufferedImage)
-			BufferedImage img_in = imgs_in.get(i); // Make an easily referenceable variable for this file (BufferedImage)
-			BufferedImage img_out; // Make a variable to represent the output image (BufferedImage)
-	        
-	        // Resize the (img_in) and store it to (img_out)
-	        if (useScale) { // If (useScale) is true,
-		        int w = (int) (img_in.getWidth()/scale); // Create a variable that represents the width of the output image
-		        int h = (int) (img_in.getHeight()/scale); // Create a variable that represents the height of the output image
-		        img_out = resizeImage(img_in, (w <= 0 ? 1:w), (h <= 0 ? 1:h)); // Set (img_out) to the resized scaled version.
-	        } else { // If (useScale) is false,
-		        img_out = resizeImage(img_in, size, size); // Set (img_out) to the resized version.
-	        }
-	        
-	        // Prepare image for writing as a file to this device
-	        File outputfile = new File(locOut + imgs_loc.get(i).substring(imgs_loc.get(i).replace("\\\\", "/").lastIndexOf(pack)+pack.length())); // Using quadruple backslashes because the replace method needs to escape the backslashes inside the String.
-	        String dir = outputfile.getAbsolutePath().substring(0, outputfile.getAbsolutePath().lastIndexOf("\\")); // Using double backslashes because Java reads "\\" as "\" (the character '\' is an escape character).
-	        
-		    if (!new File(dir).exists()) new File(dir).mkdirs(); // If this is in a null directory (the folder the image will go in does not exist), create the directory
-	        ImageIO.write(img_out, "png", outputfile); // Write (img_out) to the disk in the location (outputFile) as a "png" type
-	        System.out.printf("%.2f", 100.0*i/count); // Inform the user what percentage of images have been resized
-	        System.out.println("% : " + imgs_loc.get(i).substring(imgs_loc.get(i).replace("\\\\", "/").lastIndexOf(pack)+pack.length()).replace("\\\\", "/")); // Inform the user which file has just been created.
-		}
-		
-		for (int i = 0; i < unused_files.size(); i++) {
-			File f = unused_files.get(i);
-			if (f.getAbsolutePath().endsWith(".png.mcmeta")) {
-				BufferedReader r = new BufferedReader(new FileReader(f)); // Make a (BufferdReader) that makes reading text from files easier
-				
-				ArrayList<String> content = new ArrayList<String>(); // Make a place to store the input text
-				
-				String s = r.readLine(); // Store the first line
-				while (s != null) { // While there is actually text,
-					content.add(s); // Add it to the list of current lines
-					s = r.readLine(); // then get the next line
-				}
-				
-				r.close(); // Done reading it, close it.
-				
-				
-				File outputfile = new File(locOut + f.getAbsolutePath().substring(f.getAbsolutePath().replace("\\\\", "/").lastIndexOf(pack)+pack.length())); // Using quadruple backslashes because the replace method needs to escape the backslashes inside the String.
-		        String dir = outputfile.getAbsolutePath().substring(0, outputfile.getAbsolutePath().lastIndexOf("\\")); // Using double backslashes because Java reads "\\" as "\" (the character '\' is an escape character).
-		        
-			    if (!new File(dir).exists()) new File(dir).mkdirs(); // If this is in a null directory (the folder the image will go in does not exist), create the directory
-		        
-				BufferedWriter outputWriter = new BufferedWriter(new FileWriter(outputfile)); // Create a text file writer (BufferedWriter)
-				
-				for (int j = 0; j < content.size(); j++) { // For each (String) in (content)
-					outputWriter.write(content.get(j)); // Write this (String) to [pack.mcmeta]
-				}
-				
-				// Done with the (BufferedWriter), close it.
-				outputWriter.flush();
-				outputWriter.close();
-				
-				unused_files.remove(i);
-				i--;
-				
-				// COPY IT
-				
-				System.out.printf("%.2f", 100.0*(count-unused_files.size())/count); // Inform the user what percentage of images have been resized
-		        System.out.println("% : " + f.getAbsolutePath().substring(f.getAbsolutePath().replace("\\\\", "/").lastIndexOf(pack)+pack.length()).replace("\\\\", "/")); // Inform the user which file has just been created
-		        
-				continue;
-			}
-		}
-		
-		// Copy pack.mcmeta
-		String[] content = new String[] // Create the list of strings that represent the content of [pack.mcmeta]
-				{"{",
-				"\t\"pack\": {",
-				"\t\t\"pack_format\": " + pack_format + ",",
-				"\t\t\"description\": \"" + ("A Resized Resourcepack! Texture Resizer " + size + "x" + size + ", and did" + (useScale ? " ":" not ") + "use scaling.") + "\"",
-				"\t}",
-				"}"};
-		
-		BufferedWriter outputWriter = new BufferedWriter(new FileWriter(new File(locOut + "pack.mcmeta"))); // Create a text file writer (BufferedWriter)
-		
-		for (int i = 0; i < content.length; i++) { // For each (String) in (content)
-			outputWriter.write(content[i] + "\r\n"); // Write this (String) to [pack.mcmeta]
-		}
-		
-		// Done with the (BufferedWriter), close it.
-		outputWriter.flush();
-		outputWriter.close();
-		
-		// Inform the user of the completion of writing [pack.mcmeta]
-		System.out.println("100.00% : \\pack.mcmeta");
-		
-		// Inform the user of the completion of the program.
-		System.out.printf("Operation completed; took %.2f seconds.", ((System.currentTimeMillis() - timeInit)/1000.0));
-	}
-	
-	public static BufferedImage resizeImage(final Image image, int width, int height) {
-        final BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        final Graphics2D graphics2D = bufferedImage.createGraphics();
-        graphics2D.setComposite(AlphaComposite.Src);
-        graphics2D.setRenderingHint(RenderingHints.KEY_INTERPOLATION,RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-        graphics2D.setRenderingHint(RenderingHints.KEY_RENDERING,RenderingHints.VALUE_RENDER_QUALITY);
-        graphics2D.setRenderingHint(RenderingHints.KEY_ANTIALIASING,RenderingHints.VALUE_ANTIALIAS_ON);
-        graphics2D.drawImage(image, 0, 0, width, height, null);
-        graphics2D.dispose();
-        return bufferedImage;
-    }
-	
-	public static void appendFileArrayToArrayList(File[] a, ArrayList<File> al) {
-		for (int i = 0; i < a.length; i++)
-			al.add(a[i]);
-	}
-}
+package main;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.imageio.ImageIO;
+
+import annotations.*;
+
+/**
+ * The {@code Main} class of the {@code Minecraft_Texture_Resizer} program.
+ * <p>Options that the user may choose to modify are :
+ * 	<ul>
+ * 		<li>{@link #size} : The size that textures will be resized to. Default: 16, Minimum: 1, Maximum: 32767 (inclusive).</li>
+ * 		<li>{@link #sizes} : A list of sizes to create a resourcepack for in a single run, i.e. "4,7,12". If left blank, only {@link #size} is used.</li>
+ * 		<li>{@link #useScale} : Whether or not a scaling should be applied to non-square, 16x16 textures.</li>
+ * 		<li>{@link #filter} : The filter used to resize textures: "nearest", "box", "bilinear" or "lanczos".</li>
+ * 		<li>{@link #linear_light} : Whether or not to blend colors in linear light, with premultiplied alpha.</li>
+ * 		<li>{@link #block} : Whether or not to resize block textures.</li>
+ * 		<li>{@link #effect} : Whether or not to resize effect textures. (This only includes "dither.png", which is an unused texture.)</li>
+ * 		<li>{@link #entity} : Whether or not to resize entity textures.</li>
+ * 		<li>{@link #environment} : Whether or not to resize environment textures.</li>
+ * 		<li>{@link #font} : Whether or not to resize font textures.</li>
+ * 		<li>{@link #gui} : Whether or not to resize gui textures.</li>
+ * 		<li>{@link #item} : Whether or not to resize item textures.</li>
+ * 		<li>{@link #map} : Whether or not to resize map textures.</li>
+ * 		<li>{@link #misc} : Whether or not to resize misc (miscellaneous) textures.</li>
+ * 		<li>{@link #mob_effect} : Whether or not to resize mob_effect (status effect icon) textures.</li>
+ * 		<li>{@link #models} : Whether or not to resize models (armor) textures.</li>
+ * 		<li>{@link #painting} : Whether or not to resize painting textures.</li>
+ * 		<li>{@link #particle} : Whether or not to resize particle textures.</li>
+ * 		<li>{@link #rules} : Extra rules for which files to include or exclude, i.e. "-assets/*&#47;textures/block/*_stage*.png".</li>
+ * 		<li>{@link #name_out} : The name that the output resourcepack should assume upon completion. If left blank, will follow the format of "Resized Textures NxN" where 'N' is {@link size}.</li>
+ * 		<li>{@link #pack} : The name of the resourcepack to use as a reference for original images.</li>
+ * 		<li>{@link #pack_format} : The version that this resourcepack is intended for. Before modifying, fully read the {@link #pack_format} description.</li>
+ * 		<li>{@link #png_level} : The compression level of every written "png". Default: 9, Minimum: 0, Maximum: 9 (inclusive).</li>
+ * 		<li>{@link #incremental} : Whether files that have not changed since the previous run should be skipped.</li>
+ * 		<li>{@link #dedup} : Whether identical source textures should only be resized once.</li>
+ * 		<li>{@link #zip_out} : Whether the output resourcepack should be written as a single ".zip" instead of a folder.</li>
+ * 		<li>{@link #zip_level} : The compression level used for the ".zip" output. Default: 6, Minimum: 0, Maximum: 9 (inclusive).</li>
+ * 		<li>{@link #queue_depth} : The number of textures that may wait in between each stage of the {@link Pipeline}. Default: 16, Minimum: 1, Maximum: 1024 (inclusive).</li>
+ * 		<li>{@link #progress_interval} : How often the progress of the run is printed, in milliseconds. Default: 1000, Minimum: 0 (print every file), Maximum: 32767 (inclusive).</li>
+ * 		<li>{@link #report} : Whether a JSON report of the run should be written to "src/out/report.json".</li>
+ * 		<li>{@link #report_slowest} : The number of slowest files listed in the report. Default: 10, Minimum: 0, Maximum: 1000 (inclusive).</li>
+ * 		<li>{@link #watch_debounce} : How long watch mode waits for more changes before updating the output, in milliseconds. Default: 100, Minimum: 0, Maximum: 10000 (inclusive).</li>
+ * 		<li>{@link #memory_budget} : The memory, in megabytes, that textures being resized may use; larger textures are resized in bands. Default: 512, Minimum: 16, Maximum: 32767 (inclusive).</li>
+ * 		<li>{@link #fsync} : Whether every output file should be forced to the disk once the run is done.</li>
+ * 		<li>{@link #dry_run} : Whether to only print the plan of the run (files, sizes, projected output, time and memory), without resizing or writing anything.</li>
+ * 		<li>{@link #largest_first} : Whether the largest textures should be resized first, from a scan of every image header before the run.</li>
+ * 		<li>{@link #shards} : The number of processes to split the run over. Default: 1, Minimum: 1, Maximum: 256 (inclusive).</li>
+ * 		<li>{@link #shard} : The only shard to run, if {@link #shards} is more than 1. Default: 0 (every shard), Minimum: 0, Maximum: 256 (inclusive).</li>
+ * 		<li>{@link #threads} : The number of worker threads for each stage of the {@link Pipeline}. Default: 0 (one per processor), Minimum: 0, Maximum: 256 (inclusive).</li>
+ * 	</ul>
+ * </p>
+ */
+public class Main {
+	
+	/**
+	 * The {@code size} variable represents the size that textures are meant to be resized to. 
+	 * 
+	 * <p>The {@code size} variable is of the {@link Short} type and expects an integer value between 1 and 32767.</p>
+	 * <p>Default value: 16, min value: 1, max value: 32767</p>
+	 * <p><strong>NOTE:</strong> Larger numbers run slower. Textures that become too large to resize at once are resized in bands, see {@link #memory_budget}.</p>
+	 */
+	@ShortRangeDefaultValue(value = 16, minimum = 1, maximum = 32767)
+	public static final short size = 16;
+	
+	/**
+	 * The {@code sizes} variable is a comma separated list of sizes, i.e. "{@code 4,7,12}", that textures are resized to in a single run. Each size gets its own output resourcepack.
+	 * <p>Every source file is only read and decoded once for all of the sizes, which is much faster than running once for each size.</p>
+	 * <p>If {@code sizes} is empty (""), only {@link #size} is used. Each value has the same range as {@link #size}.</p>
+	 */
+	@StringDefaultValue("")
+	public static final String sizes = "";
+	
+	/**
+	 * The {@code useScale} variable determines if the resizing program should resize images by scale.
+	 * <p>If {@code useScale = true}, images will be resized to {@code (}{@link #scale}{@code *w, }{@link #scale}{@code *h)}.</p>
+	 * <p>If {@code useScale = false}, images will be resized to {@code (}{@link #size}{@code , }{@link #size}{@code )}.</p>
+	 */
+	@BooleanDefaultValue(true)
+	public static final boolean useScale = true;
+	
+	/**
+	 * The {@code filter} variable determines how the pixels of each texture are blended together when it is resized.
+	 * <hr />
+	 * <p>Filters:
+	 * 	<li>"{@code nearest}" : Every output pixel is a copy of a single source pixel. Very sharp, but small details may disappear.</li>
+	 * 	<li>"{@code box}" : Every output pixel is the average of the source pixels it covers. Best for shrinking pixel art by a lot (i.e. 16x16 to 4x4).</li>
+	 * 	<li>"{@code bilinear}" : Every output pixel is blended from the 2x2 closest source pixels. This matches earlier versions of this program.</li>
+	 * 	<li>"{@code lanczos}" : A sharper filter, better for smooth, high resolution textures.</li>
+	 * </p>
+	 */
+	@StringDefaultValue("bilinear")
+	public static final String filter = "bilinear";
+	
+	/**
+	 * The {@code linear_light} variable determines if colors are blended in linear light, with premultiplied alpha, when a texture is resized.
+	 * <p>If {@code linear_light = true}, the colors of fully transparent pixels no longer bleed into their neighbours (i.e. there are no dark fringes around
+	 * leaves, glass and particles), and blended colors keep their brightness instead of getting darker. Resizing takes about twice as long. See {@link Resampler}.</p>
+	 * <p>If {@code linear_light = false}, colors are blended as they are stored, which matches earlier versions of this program.</p>
+	 * <p>This does nothing with the "{@code nearest}" {@link #filter}, which never blends pixels.</p>
+	 */
+	@BooleanDefaultValue(false)
+	public static final boolean linear_light = false;
+	
+	/**
+	 * The {@code block} variable determines if images in {@code pack/assets/minecraft/textures/block} should be resized.
+	 * <hr />
+	 * <p>Examples:
+	 * 	<li>Dirt</li>
+	 * 	<li>Stone</li>
+	 * 	<li>Bedrock</li>
+	 * </p>
+	 */
+	@BooleanDefaultValue(true)
+	public static final boolean block = true;
+	
+	/**
+	 * The {@code effect} variable determines if images in {@code pack/assets/minecraft/textures/effect} should be resized.
+	 * <hr />
+	 * <p>This only has "dither"</p>
+	 */
+	@BooleanDefaultValue(false)
+	public static final boolean effect = false;
+	
+	/**
+	 * The {@code entity} variable determines if images in {@code pack/assets/minecraft/textures/entity} should be resized.
+	 * <hr />
+	 * <p>Examples:
+	 * 	<li>Pig</li>
+	 * 	<li>Creeper</li>
+	 * 	<li>Armor Stand</li>
+	 * 	<li>Tile entities, including bells and banners</li>
+	 * </p>
+	 */
+	@BooleanDefaultValue(false)
+	public static final boolean entity = false;
+	
+	/**
+	 * The {@code environment} variable determines if images in {@code pack/assets/minecraft/textures/environment} should be resized.
+	 * <hr />
+	 * <p>Examples:
+	 * 	<li>Clouds</li>
+	 * 	<li>Rain</li>
+	 * 	<li>Sun</li>
+	 * 	<li>Moon</li>
+	 * </p>
+	 */
+	@BooleanDefaultValue(false)
+	public static final boolean environment = false;
+	
+	/**
+	 * The {@code font} variable determines if images in {@code pack/assets/minecraft/textures/font} should be resized.
+	 * <hr />
+	 * <p><strong>NOTE:</strong> Will resize <em>all unicode characters</em>, often rendering text <em>unreadable</em>.</p>
+	 */
+	@BooleanDefaultValue(false)
+	public static final boolean font = false;
+	
+	/**
+	 * The {@code gui} variable determines if images in {@code pack/assets/minecraft/textures/gui} should be resized.
+	 * <hr />
+	 * <p><strong>NOTE:</strong> This often makes playing a bit difficult, as certain gui elements become difficult to see/use.
+	 * <p>Examples:
+	 * 	<li>Inventory</li>
+	 * 	<li>Game Menu (pause menu)</li>
+	 * 	<li>Title screen</li>
+	 * </p>
+	 */
+	@BooleanDefaultValue(false)
+	public static final boolean gui = false;
+	
+	/**
+	 * The {@code item} variable determines if images in {@code pack/assets/minecraft/textures/item} should be resized.
+	 * <hr />
+	 * <p>Examples:
+	 * 	<li>Dirt</li>
+	 * 	<li>Swords</li>
+	 * 	<li>Food</li>
+	 * </p>
+	 */
+	@BooleanDefaultValue(true)
+	public static final boolean item = true;
+	
+	/**
+	 * The {@code map} variable determines if images in {@code pack/assets/minecraft/textures/map} should be resized.
+	 * <hr />
+	 * <p>Examples:
+	 * 	<li>Map background texture</li>
+	 * 	<li>Map Icons</li>
+	 * </p>
+	 */
+	@BooleanDefaultValue(false)
+	public static final boolean map = false;
+	
+	/**
+	 * The {@code misc} variable determines if images in {@code pack/assets/minecraft/textures/misc} should be resized.
+	 * <hr />
+	 * <p>Examples:
+	 * 	<li>Underwater Texture</li>
+	 * 	<li>Pumkpin Overlay</li>
+	 * 	<li>Vignette Effect</li>
+	 * </p>
+	 */
+	@BooleanDefaultValue(false)
+	public static final boolean misc = false;
+	
+	/**
+	 * The {@code mob_effect} variable determines if images in {@code pack/assets/minecraft/textures/mob_effect} should be resized.
+	 * <hr />
+	 * <p>Effect icons such as:
+	 * 	<li>Regeneration</li>
+	 * 	<li>Slowness</li>
+	 * 	<li>Haste</li>
+	 * </p>
+	 */
+	@BooleanDefaultValue(false)
+	public static final boolean mob_effect = false;
+	
+	/**
+	 * The {@code models} variable determines if images in {@code pack/assets/minecraft/textures/models} should be resized.
+	 * <hr />
+	 * <p>All armor models (when worn), such as:
+	 * 	<li>Leather Armor</li>
+	 * 	<li>Iron Armor</li>
+	 * 	<li>Chainmail Armor</li>
+	 * </p>
+	 */
+	@BooleanDefaultValue(false)
+	public static final boolean models = false; // i.e. armor
+	
+	/**
+	 * The {@code painting} variable determines if images in {@code pack/assets/minecraft/textures/painting} should be resized.
+	 * <hr />
+	 * <p>Examples:
+	 * 	<li>Wanderer</li>
+	 * 	<li>Wither</li>
+	 * 	<li>Burning Skull</li>
+	 * </p>
+	 */
+	@BooleanDefaultValue(false)
+	public static final boolean painting = false;
+	
+	/**
+	 * The {@code particle} variable determines if images in {@code pack/assets/minecraft/textures/particle} should be resized.
+	 * <hr />
+	 * <p>All particles such as:
+	 * 	<li>Sword Sweep</li>
+	 * 	<li>Enchanting Table</li>
+	 * 	<li>Water Drip</li>
+	 * </p>
+	 */
+	@BooleanDefaultValue(false)
+	public static final boolean particle = false;
+	
+	/**
+	 * The {@code rules} variable is a comma separated list of extra rules for which files of the input resourcepack are resized.
+	 * <p>Each rule starts with '{@code +}' (include) or '{@code -}' (exclude), followed by a path relative to the root of the resourcepack.
+	 * A segment of the path may use '{@code *}' for any characters, and "{@code **}" for any number of folders. The last rule that matches a file wins.</p>
+	 * <p>The options above ({@link #block}, {@link #item}, ...) are rules as well, that exclude "{@code assets/*}{@code /textures/(name)}" for every namespace; these rules are applied after them.
+	 * i.e. "{@code +assets/minecraft/textures/entity/pig}" resizes pigs even though {@link #entity} is {@code false}, and "{@code -assets/*}{@code /textures/block/*_stage*.png}" leaves out crop stages.</p>
+	 * <p>See {@link PathRules}.</p>
+	 */
+	@StringDefaultValue("")
+	public static final String rules = "";
+	
+	/**
+	 * The {@code name_out} variable represents the name of the output folder that contains the resized textures.
+	 * <p>If {@code name_out} is empty ("") or null (null), then the output folder will follow the name structure "{@code Resized Textures 16x16}", if {@code 16} is the {@link #size} of the output textures.
+	 * <hr />
+	 * <p><strong>Naming conventions:</strong> Do not use any of the following characters in the {@code name_out} variable's value:
+	 * <li>Percent (%)</li>
+	 * <li>Ampersand (&)</li>
+	 * <li>Asterisk (*)</li>
+	 * <li>Angle brackets (<>)</li>
+	 * <li>Backslash (\)</li>
+	 * <li>Colon (:)</li>
+	 * <li>Question mark (?)</li>
+	 * <li>Slash (/)</li>
+	 * <li>Pipe (|)</li>
+	 * <li>Quotation mark (")</li>
+	 */
+	@StringDefaultValue("")
+	public static final String name_out = "";
+	
+	/**
+	 * The {@code pack} variable determines which resourcepack to take as an input from the resources folder.
+	 * <p>This may either be the name of a folder, i.e. "{@code Default}", or the name of a ".zip" resourcepack, i.e. "{@code Faithful.zip}".
+	 * A ".zip" is read directly, without extracting it first, and entries that are not resized are never inflated.</p>
+	 */
+	@StringDefaultValue("Default")
+	public static final String pack = "Default";
+	
+	/**
+	 * <em>Advanced users only:</em>
+	 * <p>The {@code pack_format} variable represents the "pack_format" that the pack.mcmeta file uses.</p>
+	 * <hr />
+	 * <p>{@code pack_format} value uses by number:
+	 * <ul>
+	 * 	<li>{@code pack_format} = 1 is used for Java Editions 1.6 - 1.8</li>
+	 * 	<li>{@code pack_format} = 2 is used for Java Editions 1.9 - 1.10</li>
+	 * 	<li>{@code pack_format} = 3 is used for Java Editions 1.11 - 1.12</li>
+	 * 	<li>{@code pack_format} = 4 is used for Java Editions 1.13 - 1.14</li>
+	 * 	<li>{@code pack_format} = 5 is used for Java Edition 1.15</li>
+	 * </ul>
+	 */
+	@ShortRangeDefaultValue(value = 4, minimum = 1, maximum = 5)
+	public static final short pack_format = 4;
+	
+	/**
+	 * The {@code png_level} variable represents how hard every written "png" is compressed.
+	 * <p>0 is the fastest, and 9 makes the smallest files. Resized textures are usually tiny, so the highest level costs very little;
+	 * lower it to speed up packs with very large textures.</p>
+	 * <p>Images are always written in the smallest lossless format (palette, grayscale, RGB or RGBA), no matter the level. See {@link PngEncoder}.</p>
+	 * <p>Default value: 9, min value: 0, max value: 9</p>
+	 */
+	@ShortRangeDefaultValue(value = 9, minimum = 0, maximum = 9)
+	public static final short png_level = 9;
+	
+	/**
+	 * The {@code incremental} variable determines if files that have not changed since the previous run should be skipped.
+	 * <p>If {@code incremental = true}, a {@link BuildManifest} is kept in the output folder. Files whose content, and the settings used to resize them, have not changed are not resized again,
+	 * and outputs whose source file no longer exists are deleted.</p>
+	 * <p>This has no effect if {@link #zip_out} is {@code true}, since the ".zip" is always written again in full.</p>
+	 */
+	@BooleanDefaultValue(true)
+	public static final boolean incremental = true;
+	
+	/**
+	 * The {@code dedup} variable determines if identical source textures are only resized once.
+	 * <p>Resourcepacks often contain the same image under several names (i.e. variants, placeholders and repeated gui pieces).
+	 * If {@code dedup = true}, every file is hashed first (its bytes, then its decoded pixels), and each unique image is decoded, resized and encoded only once.
+	 * Every other copy is then written from that result; in a folder output, it is a hard link to the first copy, when the file system allows it.</p>
+	 */
+	@BooleanDefaultValue(true)
+	public static final boolean dedup = true;
+	
+	/**
+	 * The {@code zip_out} variable determines if the output resourcepack is written as a ".zip", instead of as a folder.
+	 * <p>If {@code zip_out = true}, the output is written to "{@code src/out/(name).zip}", which may be used by Minecraft as it is, without zipping it by hand.</p>
+	 * <p>If {@code zip_out = false}, the output is written to the folder "{@code src/out/(name)/}".</p>
+	 */
+	@BooleanDefaultValue(false)
+	public static final boolean zip_out = false;
+	
+	/**
+	 * The {@code zip_level} variable represents the compression level of the ".zip" output, if {@link #zip_out} is {@code true}.
+	 * <p>0 is the fastest, and 9 makes the smallest ".zip". Images are always stored as they are, because a "png" is already compressed.</p>
+	 * <p>Default value: 6, min value: 0, max value: 9</p>
+	 */
+	@ShortRangeDefaultValue(value = 6, minimum = 0, maximum = 9)
+	public static final short zip_level = 6;
+	
+	/**
+	 * The {@code fsync} variable determines if the output resourcepack is forced to the disk before the run ends.
+	 * <p>Files are written by a background thread for each output resourcepack (see {@link AsyncSink}), so the workers never wait for the disk. The run still waits for every file to be written,
+	 * but the operating system may keep them in memory for a while before they actually reach the disk.</p>
+	 * <p>If {@code fsync = true}, every written file (or the ".zip") is forced to the disk once, after the whole resourcepack is written, so that the output survives a power loss right after the run.
+	 * This is much faster than forcing each file as it is written, but still slow on hard drives, so it is off by default.</p>
+	 */
+	@BooleanDefaultValue(false)
+	public static final boolean fsync = false;
+	
+	/**
+	 * <em>Advanced users only:</em>
+	 * <p>The {@code queue_depth} variable represents the number of textures that may wait in between two stages (decode, resize, encode) of the {@link Pipeline}.</p>
+	 * <p>The amount of memory used depends on this value, rather than on the number of textures in the pack. Larger values smooth out uneven stages, at the cost of memory.</p>
+	 * <p>Default value: 16, min value: 1, max value: 1024</p>
+	 */
+	@ShortRangeDefaultValue(value = 16, minimum = 1, maximum = 1024)
+	public static final short queue_depth = 16;
+	
+	/**
+	 * <em>Advanced users only:</em>
+	 * <p>The {@code threads} variable represents the number of worker threads used by each stage (decode, resize, encode) of the {@link Pipeline}.</p>
+	 * <p>If {@code threads = 0}, one worker per available processor is used. If {@code threads = 1}, every texture is processed one after another.</p>
+	 * <p>Default value: 0, min value: 0, max value: 256</p>
+	 */
+	@ShortRangeDefaultValue(value = 0, minimum = 0, maximum = 256)
+	public static final short threads = 0;
+	
+	/**
+	 * <em>Advanced users only:</em>
+	 * <p>The {@code memory_budget} variable represents the memory, in megabytes, that the images being resized may use at once. It is shared evenly by the resize workers (see {@link #threads}).</p>
+	 * <p>A texture whose source and output images would need more than the share of a single worker is not decoded in one piece. Instead, it is decoded, resized and written
+	 * one horizontal band at a time, each band as tall as the share allows (see {@link Tiler}). This keeps very large textures, and large values of {@link #size}, from running out of memory.
+	 * The images waiting in between stages (see {@link #queue_depth}) are all smaller than a share, but are not part of the budget.</p>
+	 * <p>The budget should be well below the maximum heap size of Java ("{@code -Xmx}").</p>
+	 * <p>Default value: 512, min value: 16, max value: 32767</p>
+	 */
+	@ShortRangeDefaultValue(value = 512, minimum = 16, maximum = 32767)
+	public static final short memory_budget = 512;
+	
+	/**
+	 * The {@code progress_interval} variable represents how often, in milliseconds, the progress of the run is printed.
+	 * <p>Printing a line for every file is a noticeable cost of its own on large packs, so by default, a single line with the number of files done so far is printed every second.</p>
+	 * <p>If {@code progress_interval = 0}, a line is printed for every file that is written instead.</p>
+	 * <p>Default value: 1000, min value: 0, max value: 32767</p>
+	 */
+	@ShortRangeDefaultValue(value = 1000, minimum = 0, maximum = 32767)
+	public static final short progress_interval = 1000;
+	
+	/**
+	 * The {@code report} variable determines if a report of the run is written to "{@code src/out/report.json}", once the run is complete.
+	 * <p>The report has the settings of the run, the time spent walking, decoding, resizing, encoding and writing, the number of files and bytes of each category (i.e. "block" or "item"),
+	 * the slowest files (see {@link #report_slowest}), and the peak size of the heap. See {@link RunReport}.</p>
+	 */
+	@BooleanDefaultValue(true)
+	public static final boolean report = true;
+	
+	/**
+	 * The {@code report_slowest} variable represents the number of slowest files listed in the {@link #report}.
+	 * <p>Default value: 10, min value: 0, max value: 1000</p>
+	 */
+	@ShortRangeDefaultValue(value = 10, minimum = 0, maximum = 1000)
+	public static final short report_slowest = 10;
+	
+	/**
+	 * The {@code dry_run} variable determines if the run only prints its {@link Plan}, without resizing or writing anything.
+	 * <p>The plan comes from a scan that only reads the header of each image (its width and height), so it takes a small fraction of the time of the run.
+	 * It lists the number of files of each category, how many images of each size are resized to each output size, the projected size of the output,
+	 * and estimates of the time and peak memory of the run, for the current {@link #size}, {@link #useScale} and {@link #threads}.
+	 * If {@link #report} is {@code true}, the plan is also written to the report.</p>
+	 */
+	@BooleanDefaultValue(false)
+	public static final boolean dry_run = false;
+	
+	/**
+	 * <em>Advanced users only:</em>
+	 * <p>The {@code largest_first} variable determines if the largest textures are resized first.</p>
+	 * <p>If {@code largest_first = true}, the header of every image is read before the run (see {@link Plan}), and images are handed to the {@link Pipeline} from the most pixels to the fewest.
+	 * This keeps a single large texture from starting last, and keeping the run going long after every other worker is done.</p>
+	 * <p>If {@code largest_first = false}, files are resized in the order they are found, starting while the resourcepack is still being scanned.</p>
+	 */
+	@BooleanDefaultValue(true)
+	public static final boolean largest_first = true;
+	
+	/**
+	 * <em>Advanced users only:</em>
+	 * <p>The {@code shards} variable represents the number of processes that the run is split over. See {@link Shards}.</p>
+	 * <p>Every file of the resourcepack belongs to exactly one shard, and every shard has files of about the same total cost (see {@link Plan#shard(int, int)}).
+	 * A single program holds every image being resized in a single heap; on very large resourcepacks, several smaller processes spend much less time collecting garbage.</p>
+	 * <p>If {@code shards} is more than 1 and {@link #shard} is 0, a process is started for every shard on this computer, and their outputs are merged once they are all done.
+	 * To run the shards by hand (i.e. one at a time, or in separate terminals), give each one its own {@link #shard}, then run "{@code java main.Main --merge}" with the same options.</p>
+	 * <p>The output is the same as with a single process. Shards never skip unchanged files, but with {@link #incremental}, the merged output has a {@link BuildManifest} for the next run.</p>
+	 * <p>Default value: 1, min value: 1, max value: 256</p>
+	 */
+	@ShortRangeDefaultValue(value = 1, minimum = 1, maximum = 256)
+	public static final short shards = 1;
+	
+	/**
+	 * <em>Advanced users only:</em>
+	 * <p>The {@code shard} variable represents the only shard that this run resizes, from 1 to {@link #shards}.</p>
+	 * <p>The files of the shard are written to an output of its own, i.e. "{@code Resized Textures 16x16 (shard 2 of 4)}", without "{@code pack.mcmeta}", until they are merged.
+	 * With {@link #dry_run}, only the plan of this shard is printed.</p>
+	 * <p>If {@code shard = 0}, every shard is run (see {@link #shards}).</p>
+	 * <p>Default value: 0, min value: 0, max value: 256</p>
+	 */
+	@ShortRangeDefaultValue(value = 0, minimum = 0, maximum = 256)
+	public static final short shard = 0;
+	
+	/**
+	 * The {@code watch_debounce} variable represents how long, in milliseconds, watch mode waits for more changes before it updates the output (see {@link Watcher}).
+	 * <p>Saving a texture often changes the file several times in a row (i.e. a temporary file, then the file itself). Every change that comes within this time of the previous one is handled together.
+	 * If changes keep coming, the output is updated anyway once they have been collected for 10 times this long (and at least 1 second).</p>
+	 * <p>Default value: 100, min value: 0, max value: 10000</p>
+	 */
+	@ShortRangeDefaultValue(value = 100, minimum = 0, maximum = 10000)
+	public static final short watch_debounce = 100;
+	
+	//// ====-====-====-====-====-====-====-====-====-====-====-====-====-====-====-==== ////
+	// OTHER REQUISITES, DO NOT TOUCH!
+	/**
+	 * <strong>DO NOT MODIFY</strong>
+	 * <p>The {@code scale} variable is used to sclae the {@code width} and {@code height} of images, if {@link #useScale} is {@code true}.</p>
+	 */
+	public static final double scale = 16.0/size;
+	
+	/**
+	 * <strong>DO NOT MODIFY</strong>
+	 * <p>The {@code timeInit} variable stores the initialization time of the program as a {@code long} type variable.</p>
+	 * <p>This is used to calculate the time that the program was active upon termination.</p>
+	 */
+	public static final long timeInit = System.currentTimeMillis();
+	
+	/**
+	 * <strong>DO NOT MODIFY</strong>
+	 * <p>The {@code loc} variable stores the location of this project's source folder (Minecraft_Texture_Resizer) on this device's storage.</p>
+	 * <p>This is used to make absolute references to local resources, i.e. taking the input resourcepack, and the output images and resourcepack.</p>
+	 */
+	public static final String loc = new File("").getAbsolutePath().replace("\\", "/");
+	
+	/**
+	 * <strong>DO NOT MODIFY :</strong> Although this is similar to many of the other optional settings, this must be false due to occasional issues with game crashes.
+	 * <p>The {@code colormap} variable determines if images in {@code pack/assets/minecraft/textures/colormap} should be resized.</p>
+	 * <hr />
+	 * <p>Examples:
+	 * 	<ul>
+	 * 		<li>name1</li>
+	 * 		<li>name2</li>
+	 * 	</ul>
+	 * </p>
+	 */
+	public static final boolean colormap = false;
+	
+	/**
+	 * <strong>DO NOT MODIFY</strong>
+	 * <p>The {@code resampleFilter} variable is the {@link Resampler.Filter} named by {@link #filter}.</p>
+	 */
+	public static final Resampler.Filter resampleFilter = Resampler.Filter.forName(filter);
+	
+	/**
+	 * The {@code main} method of the {@code Minecraft_Texture_Resizer} program.
+	 * <p>Options may be changed for a single run with arguments of the form "{@code name=value}", i.e. "{@code size=4 block=false}". Each value is checked against the range of its option.</p>
+	 * <p>If the first argument is "{@code --daemon}", the program keeps running and resizes every job it is given instead. See {@link Daemon}.</p>
+	 * <p>If the first argument is "{@code --watch}", the program keeps running and updates the output every time a file of the resourcepack changes. See {@link Watcher}.</p>
+	 * <p>If the first argument is "{@code --merge}", the outputs of every shard are merged into a single output resourcepack, instead of resizing anything. See {@link Shards}.</p>
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length > 0 && args[0].equals("--daemon")) { // Run as a daemon, with the rest of the arguments
+			Daemon.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		if (args.length > 0 && args[0].equals("--watch")) { // Watch the resourcepack, with the rest of the arguments as options
+			Watcher.watch(parseArgs(Arrays.copyOfRange(args, 1, args.length)));
+			return;
+		}
+		if (args.length > 0 && args[0].equals("--merge")) { // Merge the outputs of the shards, with the rest of the arguments as options
+			Shards.merge(parseArgs(Arrays.copyOfRange(args, 1, args.length)));
+			return;
+		}
+		
+		// Read the options of this run
+		Options options = parseArgs(args);
+		
+		ExecutorService pool = Executors.newCachedThreadPool();
+		try {
+			RunReport runReport = run(options, pool);
+			if (options.report) { // Write down everything about this run
+				File reportFile = new File(loc + "/src/out/report" + (options.shard > 0 ? Shards.suffix(options.shard, options.shards) : "") + ".json"); // Shards that run at once each write their own
+				runReport.save(reportFile);
+				System.out.println("Report written to " + reportFile.getPath()); // Inform the user where to find the report
+			}
+		} finally {
+			pool.shutdown(); // Let the program end once the workers are done
+		}
+		
+		// Inform the user of the completion of the program.
+		System.out.printf("Operation completed; took %.2f seconds.", ((System.currentTimeMillis() - timeInit)/1000.0));
+	}
+	
+	/**
+	 * Resizes a whole resourcepack.
+	 * @param o The options of this run.
+	 * @param pool The threads to run the {@link Pipeline} on. The same pool may be used for several runs, one after another.
+	 * @return The report of this run.
+	 * @throws IOException
+	 */
+	public static RunReport run(Options o, ExecutorService pool) throws IOException {
+		long timeRun = System.currentTimeMillis();
+		Resampler.Filter resampleFilter = o.resampleFilter();
+		if (o.shard > o.shards) throw new IllegalArgumentException("Value " + o.shard + " of shard is invalid. It must be at most shards (" + o.shards + ").");
+		if (o.shards > 1 && o.shard == 0 && !o.dry_run) return Shards.coordinate(o); // Run every shard in a process of its own
+		
+		// Get the file from the root, in this case, (pack)
+		File packFile = packFile(o);
+		System.out.println(packFile.getPath());
+		FileSystem zip = null;
+		Path root;
+		if (packFile.isFile() && o.pack.toLowerCase().endsWith(".zip")) { // If (pack) is a ".zip", read its entries in place
+			zip = FileSystems.newFileSystem(packFile.toPath(), (ClassLoader) null);
+			root = findPackRoot(zip.getPath("/"));
+		} else if (packFile.isDirectory()) {
+			root = packFile.toPath();
+		} else {
+			throw new IOException("The resourcepack " + packFile.getPath() + " does not exist.");
+		}
+		
+		ImageIO.setUseCache(false); // Images are read from streams; keep ImageIO from buffering every one of them in a temporary file
+		
+		int workers = o.workers();
+		RunReport runReport = new RunReport(o.report_slowest);
+		final PathRules pathRules = pathRules(o);
+		Plan plan = null;
+		long timeWalk = System.nanoTime();
+		if (o.dry_run) { // Only find out what the run would do
+			try {
+				plan = Plan.scan(root, pathRules, o);
+			} finally {
+				if (zip != null) zip.close(); // Done reading from the ".zip", close it.
+			}
+			if (o.shard > 0) plan = plan.shard(o.shard, o.shards); // Only the files of this shard
+			plan.print(System.out);
+			runReport.time("walk", System.nanoTime() - timeWalk);
+			runReport.put("pack", o.pack);
+			runReport.put("dry_run", true);
+			runReport.put("plan", plan.toJson());
+			if (o.shards > 1 && o.shard == 0) { // Show how evenly the files are split
+				ArrayList<Object> reportShards = new ArrayList<Object>();
+				for (int i = 1; i <= o.shards; i++) {
+					Plan p = plan.shard(i, o.shards);
+					System.out.printf("Shard %d of %d: %d file(s), estimated time: %.1f seconds%n", i, o.shards, p.getFiles(), p.getEstimatedSeconds()); // Inform the user
+					reportShards.add(Math.round(p.getEstimatedSeconds()*100)/100.0);
+				}
+				runReport.put("shard_estimated_seconds", reportShards);
+			}
+			return runReport;
+		}
+		
+		// Find every size to resize to, and create an output resourcepack for each
+		short[] targetSizes = parseSizes(o.sizes, o.size);
+		Target[] targets = new Target[targetSizes.length];
+		final Pipeline pipeline;
+		int count;
+		boolean complete = false;
+		try {
+			for (int i = 0; i < targets.length; i++) {
+				targets[i] = createTarget(o, targetSizes[i], targetSizes.length > 1);
+			}
+			
+			// Start the pipeline; every file handed to it from now on is decoded, resized and written while the rest are still being handed over
+			pipeline = new Pipeline(root, targets, o, workers, pool, runReport);
+			try {
+				pipeline.start();
+				timeWalk = System.nanoTime();
+				
+				if (o.largest_first || o.shard > 0) { // Read the size of every image first, and hand the largest ones to the pipeline first
+					plan = Plan.scan(root, pathRules, o);
+					if (o.shard > 0) plan = plan.shard(o.shard, o.shards); // Only the files of this shard, which needs the size of every image
+					for (Path f : plan.schedule()) pipeline.submit(f);
+				} else { // Hand every file that the rules include to the pipeline as soon as it is found, skipping excluded folders without listing them
+					final Path walkRoot = root;
+					Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+						public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+							String rel = walkRoot.relativize(dir).toString().replace('\\', '/');
+							if (pathRules.prunes(rel) == null) return FileVisitResult.CONTINUE;
+							System.out.println("Removed " + rel + "."); // Inform the user
+							return FileVisitResult.SKIP_SUBTREE;
+						}
+						
+						public FileVisitResult visitFile(Path f, BasicFileAttributes attrs) throws IOException {
+							if (pathRules.includes(walkRoot.relativize(f).toString().replace('\\', '/'))) pipeline.submit(f); // Hand this file to the pipeline
+							return FileVisitResult.CONTINUE;
+						}
+					});
+				}
+				
+				runReport.time("walk", System.nanoTime() - timeWalk - pipeline.getSubmitWait()); // Time spent waiting for the pipeline is not part of the walk
+			} finally {
+				// Wait for the pipeline to write every image that was found (even if the walk failed, so that no worker is left running)
+				try {
+					pipeline.finish();
+					for (int i = 0; i < targets.length; i++) targets[i].sink.flush(); // Wait for every file to be written, some are still being copied from the input
+				} finally {
+					if (zip != null) zip.close(); // Done reading from the ".zip", close it.
+				}
+			}
+			count = pipeline.getResized();
+			
+			System.out.println("Number of images resized: " + count + ", other files copied: " + pipeline.getCopied() + ", unchanged files skipped: " + pipeline.getSkipped()); // Inform the user about the quantity of images written
+			for (int i = 0; i < targets.length; i++) {
+				if (targets[i].manifest != null) { // Remove the outputs of files that are gone, and remember what was written for the next run
+					System.out.println("Number of old files deleted for " + targets[i].size + "x" + targets[i].size + ": " + targets[i].manifest.prune(o.progress_interval == 0));
+					targets[i].manifest.save();
+				}
+			}
+			System.out.printf("Used %d worker thread(s) per stage; parallel utilization: %.2f worker thread(s) busy on average%n", workers, pipeline.getUtilization()); // Inform the user how busy the worker threads were kept
+			if (pipeline.getSubsampled() > 0) System.out.println("Images decoded straight to their output size: " + pipeline.getSubsampled()); // Inform the user how many images did not need resizing
+			if (o.dedup) System.out.printf("Duplicate files collapsed: %d; CPU time saved: %.2f seconds%n", pipeline.getDuplicates(), pipeline.getDuplicateSavings()/1e9); // Inform the user how much deduplication helped
+			
+			// Write pack.mcmeta for each output resourcepack, then finish it.
+			for (int i = 0; i < targets.length; i++) {
+				if (o.shard > 0) { // Written once the shards are merged
+					targets[i].sink.close();
+					continue;
+				}
+				targets[i].sink.write("pack.mcmeta", packMcmeta(o, targets[i].size));
+				targets[i].sink.close();
+				
+				// Inform the user of the completion of writing [pack.mcmeta]
+				System.out.println(targets[i].size + "x" + targets[i].size + " : /pack.mcmeta");
+			}
+			complete = true;
+		} finally {
+			if (!complete) { // Something failed; stop every writer thread, and leave no incomplete ".zip" behind
+				for (Target t : targets) {
+					if (t != null) t.sink.discard();
+				}
+				if (zip != null) zip.close(); // In case no pipeline was started to close it
+			}
+		}
+		
+		// Write down everything about this run
+		ArrayList<Object> reportSizes = new ArrayList<Object>();
+		for (Target t : targets) reportSizes.add(t.size);
+		runReport.put("pack", o.pack);
+		runReport.put("sizes", reportSizes);
+		runReport.put("use_scale", o.useScale);
+		runReport.put("filter", resampleFilter.name().toLowerCase());
+		runReport.put("linear_light", o.linear_light);
+		runReport.put("threads", workers);
+		if (o.shard > 0) runReport.put("shard", o.shard + " of " + o.shards);
+		runReport.put("seconds", (System.currentTimeMillis() - timeRun)/1000.0);
+		runReport.put("resized", count);
+		runReport.put("copied", pipeline.getCopied());
+		runReport.put("skipped", pipeline.getSkipped());
+		runReport.put("duplicates", pipeline.getDuplicates());
+		runReport.put("subsampled", pipeline.getSubsampled());
+		runReport.put("utilization", Math.round(pipeline.getUtilization()*100)/100.0);
+		if (plan != null) runReport.put("estimated_seconds", Math.round(plan.getEstimatedSeconds()*100)/100.0); // To compare with (seconds)
+		return runReport;
+	}
+	
+	/**
+	 * Reads options from command line arguments.
+	 * @param args Arguments of the form "{@code name=value}", i.e. "{@code size=4}".
+	 * @return The options written in {@link Main}, changed by the arguments.
+	 * @throws IllegalArgumentException If an argument is not of that form, or is not a valid value of its option.
+	 */
+	public static Options parseArgs(String[] args) {
+		Options options = Options.defaults();
+		LinkedHashMap<String, String> values = new LinkedHashMap<String, String>();
+		for (String arg : args) {
+			int eq = arg.indexOf('=');
+			if (eq < 0) throw new IllegalArgumentException("Argument \"" + arg + "\" is invalid. Arguments must be of the form name=value.");
+			values.put(arg.substring(0, eq).trim(), arg.substring(eq+1));
+		}
+		options.setAll(values);
+		return options;
+	}
+	
+	/**
+	 * Finds the input resourcepack.
+	 * @param o The options of this run.
+	 * @return {@link #pack} if it is an absolute path, otherwise {@link #pack} inside of "{@code src/resources}".
+	 */
+	public static File packFile(Options o) {
+		return new File(o.pack).isAbsolute() ? new File(o.pack) : new File(loc + "/src/resources/" + o.pack);
+	}
+	
+	/**
+	 * Builds the table of rules that decides which files are resized: an exclude rule for every category that is turned off, followed by {@link #rules}.
+	 * @param o The options of this run.
+	 * @return The rules.
+	 */
+	public static PathRules pathRules(Options o) {
+		String[] names = {"block", "colormap", "effect", "entity", "environment", "font", "gui", "item", "map", "misc", "mob_effect", "models", "painting", "particle"};
+		boolean[] on = {o.block, colormap, o.effect, o.entity, o.environment, o.font, o.gui, o.item, o.map, o.misc, o.mob_effect, o.models, o.painting, o.particle};
+		PathRules r = new PathRules();
+		for (int i = 0; i < names.length; i++) {
+			if (!on[i]) r.exclude("assets/*/textures/" + names[i]); // Exactly this folder, in every namespace
+		}
+		return r.addAll(PathRules.parse(o.rules));
+	}
+	
+	/**
+	 * Reads the list of sizes to resize to.
+	 * @param list A comma separated list of sizes, i.e. "4,7,12". If empty, only {@code size} is used.
+	 * @param size The size to use if the list is empty. See {@link #size}.
+	 * @return Every size in the list, without duplicates.
+	 * @throws IllegalArgumentException If a size is not an integer between 1 and 32767.
+	 */
+	public static short[] parseSizes(String list, short size) {
+		if (list == null || list.trim().equals("")) return new short[] {size};
+		LinkedHashSet<Short> found = new LinkedHashSet<Short>();
+		for (String part : list.split(",")) {
+			short s;
+			try {
+				s = Short.parseShort(part.trim());
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Value \"" + part.trim() + "\" in sizes is invalid. Each size must be an integer between 1 and 32767.");
+			}
+			if (s <= 0) throw new IllegalArgumentException("Value " + s + " in sizes is invalid. Each size must be an integer greater than 0."); // Size cannot be 0 or smaller
+			found.add(s);
+		}
+		short[] result = new short[found.size()];
+		int i = 0;
+		for (short s : found) result[i++] = s;
+		return result;
+	}
+	
+	/**
+	 * Finds the location of the output resourcepack for a single size.
+	 * @param o The options of this run.
+	 * @param s The size that textures are resized to.
+	 * @param multiple Whether this is one of several sizes of this run; if it is, the size is added to {@link #name_out} so that every size gets its own output.
+	 * @return The location of the output folder, or of the ".zip" without its extension.
+	 */
+	public static String outputLocation(Options o, short s, boolean multiple) {
+		if (o.name_out != null && !o.name_out.equals("")) {
+			return (new File(o.name_out).isAbsolute() ? o.name_out : loc + "/src/out/" + o.name_out) + (multiple ? " " + s + "x" + s : "");
+		}
+		return loc + "/src/out/Resized Textures " + s + "x" + s;
+	}
+	
+	/**
+	 * Creates the output resourcepack for a single size.
+	 * <p>If {@link #shard} is not 0, this is the output of that shard, which is merged into the output resourcepack later (see {@link Shards}).</p>
+	 * @param o The options of this run.
+	 * @param s The size that textures are resized to.
+	 * @param multiple Whether this is one of several sizes of this run; if it is, the size is added to {@link #name_out} so that every size gets its own output.
+	 * @return The target.
+	 * @throws IOException
+	 */
+	public static Target createTarget(Options o, short s, boolean multiple) throws IOException {
+		// Find the output location
+		String locOut = outputLocation(o, s, multiple);
+		if (o.shard > 0) {
+			locOut += Shards.suffix(o.shard, o.shards);
+			Shards.delete(new File(locOut)); // Anything left from an earlier run of this shard would be merged as well
+		}
+		if (o.zip_out) { // Write everything into "(locOut).zip"
+			return new Target(s, o.useScale, new AsyncSink(new ZipSink(new File(locOut + ".zip"), o.zip_level, o.fsync), "writer " + s + "x" + s), null);
+		}
+		// Write everything into the folder (locOut)
+		BuildManifest manifest = null;
+		if (o.incremental) manifest = BuildManifest.load(new File(locOut), "size=" + s + ",useScale=" + o.useScale + ",filter=" + o.resampleFilter().name().toLowerCase() + (o.linear_light ? ",linear_light" : "") + ",png_level=" + o.png_level); // Find out what the previous run wrote
+		return new Target(s, o.useScale, new AsyncSink(new FolderSink(new File(locOut), o.fsync), "writer " + s + "x" + s), manifest);
+	}
+	
+	/**
+	 * Creates the content of [pack.mcmeta] for an output resourcepack.
+	 * @param o The options of this run.
+	 * @param s The size that textures were resized to.
+	 * @return The content of [pack.mcmeta].
+	 */
+	public static byte[] packMcmeta(Options o, short s) {
+		String[] content = new String[] // Create the list of strings that represent the content of [pack.mcmeta]
+				{"{",
+				"\t\"pack\": {",
+				"\t\t\"pack_format\": " + o.pack_format + ",",
+				"\t\t\"description\": \"" + ("A Resized Resourcepack! Texture Resizer " + s + "x" + s + ", and did" + (o.useScale ? " ":" not ") + "use scaling.") + "\"",
+				"\t}",
+				"}"};
+		
+		StringBuilder outputWriter = new StringBuilder(); // Create a place to put the text of [pack.mcmeta]
+		
+		for (int i = 0; i < content.length; i++) { // For each (String) in (content)
+			outputWriter.append(content[i] + "\r\n"); // Write this (String) to [pack.mcmeta]
+		}
+		return outputWriter.toString().getBytes();
+	}
+	
+	/**
+	 * Resizes an image with the {@link #filter} and {@link #linear_light} written in {@link Main}.
+	 * @param image The image to resize.
+	 * @param width The width of the output image.
+	 * @param height The height of the output image.
+	 * @return A new {@link BufferedImage#TYPE_INT_ARGB} image.
+	 * @see Resampler
+	 */
+	public static BufferedImage resizeImage(final BufferedImage image, int width, int height) {
+		return Resampler.resize(image, width, height, resampleFilter, linear_light);
+	}
+	
+	public static void appendDirectoryToArrayList(Path dir, ArrayList<Path> al) throws IOException {
+		DirectoryStream<Path> ds = Files.newDirectoryStream(dir);
+		try {
+			for (Path p : ds)
+				al.add(p);
+		} finally {
+			ds.close();
+		}
+	}
+	
+	/**
+	 * Finds the root of a resourcepack inside of a ".zip".
+	 * <p>Most resourcepacks have "{@code pack.mcmeta}" at the top of the ".zip", but some (such as the ones in "examples") put everything inside of a single folder first.</p>
+	 * @param top The top of the ".zip".
+	 * @return The folder that contains "{@code pack.mcmeta}" or "{@code assets}".
+	 * @throws IOException
+	 */
+	public static Path findPackRoot(Path top) throws IOException {
+		if (Files.exists(top.resolve("pack.mcmeta")) || Files.isDirectory(top.resolve("assets"))) return top;
+		ArrayList<Path> children = new ArrayList<Path>();
+		appendDirectoryToArrayList(top, children);
+		if (children.size() == 1 && Files.isDirectory(children.get(0))) return findPackRoot(children.get(0)); // Only a single folder, look inside of it
+		return top;
+	}
+}
@@ -0,0 +1,237 @@
+package main;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import annotations.*;
+
+/**
+ * The {@code Options} class holds the settings of a single run.
+ * <p>It has one field for every option of {@link Main}, with the same name and type. {@link #defaults()} copies the values that are written in {@link Main},
+ * and {@link #set(String, String)} changes a value, checked against the annotation of the option in {@link Main} (i.e. the minimum and maximum of a {@link ShortRangeDefaultValue}).</p>
+ * <p>This allows several runs with different settings in a single program, i.e. with command line arguments or in {@link Daemon} mode, without editing {@link Main}.</p>
+ */
+public class Options {
+
+	/** See {@link Main#size}. */
+	public short size;
+	/** See {@link Main#sizes}. */
+	public String sizes;
+	/** See {@link Main#useScale}. */
+	public boolean useScale;
+	/** See {@link Main#filter}. */
+	public String filter;
+	/** See {@link Main#linear_light}. */
+	public boolean linear_light;
+	/** See {@link Main#block}. */
+	public boolean block;
+	/** See {@link Main#effect}. */
+	public boolean effect;
+	/** See {@link Main#entity}. */
+	public boolean entity;
+	/** See {@link Main#environment}. */
+	public boolean environment;
+	/** See {@link Main#font}. */
+	public boolean font;
+	/** See {@link Main#gui}. */
+	public boolean gui;
+	/** See {@link Main#item}. */
+	public boolean item;
+	/** See {@link Main#map}. */
+	public boolean map;
+	/** See {@link Main#misc}. */
+	public boolean misc;
+	/** See {@link Main#mob_effect}. */
+	public boolean mob_effect;
+	/** See {@link Main#models}. */
+	public boolean models;
+	/** See {@link Main#painting}. */
+	public boolean painting;
+	/** See {@link Main#particle}. */
+	public boolean particle;
+	/** See {@link Main#rules}. */
+	public String rules;
+	/** See {@link Main#name_out}. */
+	public String name_out;
+	/** See {@link Main#pack}. */
+	public String pack;
+	/** See {@link Main#pack_format}. */
+	public short pack_format;
+	/** See {@link Main#png_level}. */
+	public short png_level;
+	/** See {@link Main#incremental}. */
+	public boolean incremental;
+	/** See {@link Main#dedup}. */
+	public boolean dedup;
+	/** See {@link Main#zip_out}. */
+	public boolean zip_out;
+	/** See {@link Main#zip_level}. */
+	public short zip_level;
+	/** See {@link Main#fsync}. */
+	public boolean fsync;
+	/** See {@link Main#queue_depth}. */
+	public short queue_depth;
+	/** See {@link Main#threads}. */
+	public short threads;
+	/** See {@link Main#memory_budget}. */
+	public short memory_budget;
+	/** See {@link Main#progress_interval}. */
+	public short progress_interval;
+	/** See {@link Main#report}. */
+	public boolean report;
+	/** See {@link Main#report_slowest}. */
+	public short report_slowest;
+	/** See {@link Main#dry_run}. */
+	public boolean dry_run;
+	/** See {@link Main#largest_first}. */
+	public boolean largest_first;
+	/** See {@link Main#shards}. */
+	public short shards;
+	/** See {@link Main#shard}. */
+	public short shard;
+	/** See {@link Main#watch_debounce}. */
+	public short watch_debounce;
+
+	private Options() {
+	}
+
+	/**
+	 * @return A new {@code Options} with the values written in {@link Main}.
+	 */
+	public static Options defaults() {
+		Options o = new Options();
+		for (Field f : fields()) {
+			try {
+				f.set(o, option(f.getName()).get(null));
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		return o;
+	}
+
+	/**
+	 * Changes a single option.
+	 * @param name The name of the option, the same as in {@link Main}, i.e. "{@code size}".
+	 * @param value The new value, as text, i.e. "{@code 4}" or "{@code false}".
+	 * @throws IllegalArgumentException If there is no such option, or if the value is not valid for it (i.e. it is outside of the range of a {@link ShortRangeDefaultValue}).
+	 */
+	public void set(String name, String value) {
+		Field f;
+		try {
+			f = Options.class.getField(name);
+		} catch (NoSuchFieldException e) {
+			throw new IllegalArgumentException("There is no option named \"" + name + "\".");
+		}
+		if (Modifier.isStatic(f.getModifiers())) throw new IllegalArgumentException("There is no option named \"" + name + "\".");
+		Field m = option(name);
+		value = value.trim();
+		Object v;
+		if (f.getType() == short.class) {
+			short s;
+			try {
+				s = Short.parseShort(value);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Value \"" + value + "\" of " + name + " is invalid. It must be an integer.");
+			}
+			ShortRangeDefaultValue range = m.getAnnotation(ShortRangeDefaultValue.class);
+			if (range != null) {
+				boolean in = range.inclusive() ? s >= range.minimum() && s <= range.maximum() : s > range.minimum() && s < range.maximum();
+				if (!in) throw new IllegalArgumentException("Value " + s + " of " + name + " is invalid. It must be between " + range.minimum() + " and " + range.maximum()
+						+ (range.inclusive() ? " (inclusive)." : " (exclusive)."));
+			}
+			v = s;
+		} else if (f.getType() == boolean.class) {
+			if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) throw new IllegalArgumentException("Value \"" + value + "\" of " + name + " is invalid. It must be true or false.");
+			v = Boolean.parseBoolean(value);
+		} else {
+			v = value;
+		}
+		// Options whose text has a meaning of their own
+		if (name.equals("filter")) Resampler.Filter.forName(value);
+		if (name.equals("sizes")) Main.parseSizes(value, size);
+		if (name.equals("rules")) PathRules.parse(value);
+		try {
+			f.set(this, v);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Changes several options. See {@link #set(String, String)}.
+	 * @param values The new value of each option, by name.
+	 * @throws IllegalArgumentException If any of the values is not valid. No option is changed then.
+	 */
+	public void setAll(Map<String, String> values) {
+		Options check = copy(); // Check every value first
+		for (Map.Entry<String, String> e : values.entrySet()) check.set(e.getKey(), e.getValue());
+		for (Map.Entry<String, String> e : values.entrySet()) set(e.getKey(), e.getValue());
+	}
+
+	/**
+	 * @return A copy of these options.
+	 */
+	public Options copy() {
+		Options o = new Options();
+		for (Field f : fields()) {
+			try {
+				f.set(o, f.get(this));
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		return o;
+	}
+
+	/**
+	 * @return Every option as an argument of the form "{@code name=value}", which {@link Main#parseArgs(String[])} reads back into the same options, i.e. for another process.
+	 */
+	public List<String> toArgs() {
+		List<String> args = new ArrayList<String>();
+		for (Field f : fields()) {
+			try {
+				args.add(f.getName() + "=" + f.get(this));
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		return args;
+	}
+
+	/**
+	 * @return The {@link Resampler.Filter} named by {@link #filter}.
+	 */
+	public Resampler.Filter resampleFilter() {
+		return Resampler.Filter.forName(filter);
+	}
+
+	/**
+	 * @return The number of worker threads for each stage: {@link #threads}, or one per processor if it is 0.
+	 */
+	public int workers() {
+		return threads == 0 ? Runtime.getRuntime().availableProcessors() : threads;
+	}
+
+	private static Field[] fields() {
+		return Options.class.getFields(); // Every option is public, and nothing else is
+	}
+
+	/**
+	 * @return The field of {@link Main} that declares an option.
+	 */
+	private static Field option(String name) {
+		try {
+			Field m = Main.class.getField(name);
+			if (m.getAnnotation(ShortRangeDefaultValue.class) == null && m.getAnnotation(BooleanDefaultValue.class) == null && m.getAnnotation(StringDefaultValue.class) == null) {
+				throw new IllegalStateException("Main." + name + " is not an option.");
+			}
+			return m;
+		} catch (NoSuchFieldException e) {
+			throw new IllegalStateException("Main has no option named " + name + ".", e);
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package main;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * A {@code PackSink} is the place that the files of the output resourcepack are written to.
+ * <p>Implementations must allow {@link #write(String, byte[])}, {@link #copy(String, String)} and {@link #transfer(String, Path)} to be called from several threads at once.</p>
+ * @see FolderSink
+ * @see ZipSink
+ * @see AsyncSink
+ */
+public interface PackSink {
+
+	/**
+	 * Writes a single file of the output resourcepack.
+	 * @param path The location of the file, relative to the root of the resourcepack, using '/' as the separator.
+	 * @param data The complete content of the file.
+	 * @throws IOException
+	 */
+	public void write(String path, byte[] data) throws IOException;
+
+	/**
+	 * Writes a file of the output resourcepack with the same content as a file that was already given to this sink, from the output itself.
+	 * <p>Implementations may share the content of both files (i.e. with a hard link) instead of writing it again. The content never has to be kept in memory for this.</p>
+	 * @param path The location of the file, relative to the root of the resourcepack, using '/' as the separator.
+	 * @param original The location of the file that was already given to this sink, with {@link #write(String, byte[])} or {@link #transfer(String, Path)}.
+	 * @throws IOException If the original was not written.
+	 */
+	public void copy(String path, String original) throws IOException;
+
+	/**
+	 * Copies a file of the input resourcepack to the output resourcepack as it is, byte for byte.
+	 * <p>Implementations should copy it without reading the whole file into memory where they can (i.e. with {@link java.nio.channels.FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}).</p>
+	 * @param path The location of the file in the output, relative to the root of the resourcepack, using '/' as the separator.
+	 * @param source The file to copy. It may be on the disk, or inside of a ".zip" resourcepack.
+	 * @throws IOException
+	 */
+	public void transfer(String path, Path source) throws IOException;
+
+	/**
+	 * Waits until every file given so far is completely written, i.e. before the {@link BuildManifest} that lists them is saved. More files may be written after this.
+	 * @throws IOException If any of them could not be written.
+	 */
+	public void flush() throws IOException;
+
+	/**
+	 * Finishes writing the output resourcepack. Nothing may be written after this.
+	 * @throws IOException
+	 */
+	public void close() throws IOException;
+
+	/**
+	 * Gives up on the output resourcepack, after the run failed. Files that are not written yet are dropped, and every thread and open file of the sink is released.
+	 * <p>An output that is only usable once it is complete (a ".zip") is deleted. Nothing happens if the sink was already {@link #close() closed}.
+	 * Errors are ignored, since the run has already failed.</p>
+	 */
+	public void discard();
+}
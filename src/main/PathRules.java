@@ -0,0 +1,142 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The {@code PathRules} class is a table of include and exclude rules, that decides which files of the input resourcepack are handed to the {@link Pipeline}.
+ * <p>Each rule is a path relative to the root of the resourcepack, using '/' as the separator, where a segment may be:
+ * <ul>
+ * 	<li>A name, i.e. "{@code block}", which only matches that exact name (so "{@code map}" does not match "{@code colormap}").</li>
+ * 	<li>A pattern with '{@code *}', i.e. "{@code *_stage*.png}", where '{@code *}' matches any number of characters inside of a single segment.</li>
+ * 	<li>"{@code **}", which matches any number of segments, including none.</li>
+ * </ul>
+ * A rule matches a path if it matches the whole path, or any folder that the path is in. So "{@code assets/*}{@code /textures/block}" matches every file in the block folder of every namespace.</p>
+ * <p>Every file is included, unless a rule excludes it. If several rules match a path, the last one wins.
+ * A folder that is excluded, and that no later include rule could match anything inside of, is skipped without listing its content.</p>
+ */
+public class PathRules {
+
+	private final List<Rule> rules = new ArrayList<Rule>();
+
+	/**
+	 * Reads a list of rules.
+	 * @param text A comma separated list of rules, each starting with '{@code +}' (include) or '{@code -}' (exclude), i.e. "{@code -assets/*}{@code /textures/block, +assets/*}{@code /textures/block/dirt.png}".
+	 * @return The rules, in the same order.
+	 * @throws IllegalArgumentException If a rule does not start with '{@code +}' or '{@code -}'.
+	 */
+	public static PathRules parse(String text) {
+		PathRules r = new PathRules();
+		for (String s : text.split(",")) {
+			s = s.trim();
+			if (s.isEmpty()) continue;
+			if (s.charAt(0) == '+') r.include(s.substring(1).trim());
+			else if (s.charAt(0) == '-') r.exclude(s.substring(1).trim());
+			else throw new IllegalArgumentException("The rule \"" + s + "\" must start with '+' (include) or '-' (exclude).");
+		}
+		return r;
+	}
+
+	/**
+	 * Adds a rule that includes every path it matches.
+	 * @return This table.
+	 */
+	public PathRules include(String pattern) {
+		rules.add(new Rule(true, pattern));
+		return this;
+	}
+
+	/**
+	 * Adds a rule that excludes every path it matches.
+	 * @return This table.
+	 */
+	public PathRules exclude(String pattern) {
+		rules.add(new Rule(false, pattern));
+		return this;
+	}
+
+	/**
+	 * Adds every rule of another table, after the rules of this table.
+	 * @return This table.
+	 */
+	public PathRules addAll(PathRules other) {
+		rules.addAll(other.rules);
+		return this;
+	}
+
+	/**
+	 * @param path A path relative to the root of the resourcepack, using '/' as the separator.
+	 * @return {@code true} if the file should be handed to the {@link Pipeline}.
+	 */
+	public boolean includes(String path) {
+		int i = last(split(path));
+		return i < 0 || rules.get(i).include;
+	}
+
+	/**
+	 * @param dir A folder relative to the root of the resourcepack, using '/' as the separator.
+	 * @return The exclude rule that removes this folder and everything inside of it, or {@code null} if the folder should be walked.
+	 */
+	public String prunes(String dir) {
+		String[] path = split(dir);
+		int i = last(path);
+		if (i < 0 || rules.get(i).include) return null;
+		for (int j = i+1; j < rules.size(); j++) { // A later include rule may still match something inside of this folder
+			Rule r = rules.get(j);
+			if (r.include && r.matches(path, 0, 0, true)) return null;
+		}
+		return rules.get(i).pattern;
+	}
+
+	/**
+	 * @return The index of the last rule that matches the path, or -1 if none does.
+	 */
+	private int last(String[] path) {
+		for (int i = rules.size()-1; i >= 0; i--) {
+			if (rules.get(i).matches(path, 0, 0, false)) return i;
+		}
+		return -1;
+	}
+
+	private static String[] split(String path) {
+		if (path.startsWith("/")) path = path.substring(1);
+		if (path.endsWith("/")) path = path.substring(0, path.length()-1);
+		return path.isEmpty() ? new String[0] : path.split("/");
+	}
+
+	private static class Rule {
+		final boolean include;
+		final String pattern;
+		final Object[] segments; // A String for a plain name, a Pattern for a name with '*', or null for "**"
+
+		Rule(boolean include, String pattern) {
+			this.include = include;
+			this.pattern = pattern;
+			String[] s = split(pattern);
+			this.segments = new Object[s.length];
+			for (int i = 0; i < s.length; i++) {
+				if (s[i].equals("**")) segments[i] = null;
+				else if (s[i].indexOf('*') < 0) segments[i] = s[i];
+				else segments[i] = Pattern.compile(Pattern.quote(s[i]).replace("*", "\\E.*\\Q"));
+			}
+		}
+
+		/**
+		 * @param below If {@code true}, also matches if {@code path} is a folder that this rule could match something inside of.
+		 * Otherwise, matches if this rule matches {@code path}, or a folder that it is in.
+		 */
+		boolean matches(String[] path, int p, int s, boolean below) {
+			if (s == segments.length) return true; // Every segment matched; this is the path itself, or a folder it is in
+			if (p == path.length) { // The path ran out first
+				if (below) return true;
+				for (int i = s; i < segments.length; i++) if (segments[i] != null) return false;
+				return true; // Only "**" is left, which may match no segments
+			}
+			Object seg = segments[s];
+			if (seg == null) return matches(path, p, s+1, below) || matches(path, p+1, s, below); // "**" matches no more segments, or one more
+			if (seg instanceof String ? !seg.equals(path[p]) : !((Pattern) seg).matcher(path[p]).matches()) return false;
+			return matches(path, p+1, s+1, below);
+		}
+	}
+}
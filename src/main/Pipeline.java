@@ -0,0 +1,678 @@
+package main;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+
+/**
+ * The {@code Pipeline} class streams every file of a resourcepack through three stages, each running on {@link Main#threads} worker threads:
+ * <ul>
+ * 	<li><strong>decode</strong> : reads the file as an image, or copies it if it is not an image.</li>
+ * 	<li><strong>resize</strong> : resizes the image with the {@link Resampler}, once for each {@link Target}.</li>
+ * 	<li><strong>encode</strong> : encodes each resized image as a "png" with the {@link PngEncoder}, and hands it to the {@link PackSink} of its {@link Target},
+ * 	which writes it on a background thread (see {@link AsyncSink}). The time recorded as "write" is only the time spent handing it over.</li>
+ * </ul>
+ * <p>An image with a ".png.mcmeta" next to it is handled together with it: animated textures are resized frame by frame by {@link Animation},
+ * and the ".png.mcmeta" is written (or rewritten, if the frames changed) by the same texture. A ".png.mcmeta" is only parsed if it has an "animation" block; otherwise its bytes are copied as they are.</p>
+ * <p>Every other file (i.e. sounds, models, languages, fonts, shaders) is copied byte for byte, except "{@code pack.mcmeta}", which {@link Main} writes for each target.
+ * Unless a target has a {@link BuildManifest} (which needs the hash of the file), it is never read into memory: the sink copies it straight from the input with {@link PackSink#transfer(String, Path)}.</p>
+ * <p>Every file is read and decoded only once, no matter how many targets there are. Every target is resized from the source image, never from the output of a larger target,
+ * so each output is exactly the same as in a run for its size alone (resizing twice blends the pixels differently, with every filter).</p>
+ * <p>The stages are connected by bounded queues of {@link Main#queue_depth} textures. When a queue is full, the stage before it waits (backpressure),
+ * so the number of images held in memory depends on the queue depth, and not on the size of the pack.</p>
+ * <p>If a single target needs an image, and its {@link Resampler.Filter} only copies every n-th source pixel (see {@link Resampler#subsampleOffset(Resampler.Filter, boolean, int, int)}),
+ * only those pixels are decoded, and the decoded image is already the output.</p>
+ * <p>An image that would need more than its share of {@link Main#memory_budget} to resize in a single piece is not decoded by the decode stage.
+ * The resize stage decodes, resizes and encodes it one band at a time with the {@link Tiler} instead, so its time is all recorded as "resize".</p>
+ * <p>Files are handed to the pipeline with {@link #submit(Path)} as soon as they are found, so the first output is written while the pack is still being scanned.
+ * The files may either be on the disk, or inside of a ".zip" resourcepack (opened as a zip {@link java.nio.file.FileSystem}); an entry of a ".zip" is only inflated when the decode stage reads it.</p>
+ * <p>If a target has a {@link BuildManifest}, files that have not changed since the previous run are skipped for that target; a file is only decoded if at least one target needs it.</p>
+ * <p>If {@link Main#dedup} is {@code true}, identical source files are only processed once. A file with the same bytes as an earlier image is not even decoded,
+ * and an image with the same pixels (and ".png.mcmeta") as an earlier one is not resized. Either way, the output of the first one is written for it with {@link PackSink#copy(String, String)},
+ * as soon as that output exists. The copy is made from the output itself, so only the size and hash of each output are kept for later copies, never the encoded image.</p>
+ * <p>The workers run on a given {@link ExecutorService}, so that the same threads may be used by one run after another (see {@link Daemon}).</p>
+ * <p>Every texture is processed independently of every other texture, so the output does not depend on the number of threads, only the order in which files are written does.</p>
+ * <p>The time spent in each stage, and the files read and written, are recorded in a {@link RunReport}. Progress is printed every {@link Main#progress_interval} milliseconds.</p>
+ */
+public class Pipeline {
+
+	private final Path root; // The root folder of the input resourcepack
+	private final Target[] targets; // Every output resourcepack
+	private final boolean manifests; // Whether any target has a manifest, which needs the hash of every file
+
+	private final BlockingQueue<Texture> decodeQueue;
+	private final BlockingQueue<Texture> resizeQueue;
+	private final BlockingQueue<Texture> encodeQueue;
+
+	private final Options options;
+	private final Resampler.Filter filter;
+	private final boolean linear; // Whether to blend in linear light, see Main#linear_light
+	private final ExecutorService pool; // The threads that the workers run on
+	private final Runnable[] workers;
+	private final List<Future<?>> running = new ArrayList<Future<?>>(); // Every worker that has been started
+	private Future<?> progress; // Prints the progress of the pipeline, or null if every file is printed instead
+
+	private final RunReport report;
+	private final ThreadLocal<long[]> writing = new ThreadLocal<long[]>() { // The time the current thread has spent writing, in nanoseconds
+		protected long[] initialValue() { return new long[1]; }
+	};
+	private long submitWait; // The time that submit() spent waiting on a full queue, in nanoseconds
+
+	private final PngEncoder encoder;
+	private final long budget; // The most memory, in bytes, that each resize worker may use for a single image
+
+	private volatile IOException failure; // The first error thrown by any stage, rethrown by finish()
+	private final AtomicInteger resized = new AtomicInteger();
+	private final AtomicInteger copied = new AtomicInteger();
+	private final AtomicInteger skipped = new AtomicInteger();
+	private final ConcurrentHashMap<String, Texture> originals = new ConcurrentHashMap<String, Texture>(); // The first texture with each content, by hash of its bytes and by hash of its pixels
+	private final AtomicInteger duplicates = new AtomicInteger();
+	private final AtomicInteger subsampled = new AtomicInteger();
+	private static final ThreadMXBean cpu = ManagementFactory.getThreadMXBean();
+	private final AtomicLong busy = new AtomicLong(); // The total CPU time, in nanoseconds, that every worker has spent processing textures
+	private long timeStart; // The time that start() was called, in nanoseconds
+	private long timeFinish; // The time that every worker had finished, in nanoseconds
+
+	/**
+	 * Creates a new {@code Pipeline}. Call {@link #start()} before submitting any files.
+	 * @param root The root folder of the input resourcepack.
+	 * @param targets Every output resourcepack.
+	 * @param options The options of this run.
+	 * @param threads The number of worker threads for each stage.
+	 * @param pool The threads to run the workers on. It must be able to run {@code 3*threads + 1} tasks at once.
+	 * @param report The report to record the time of each stage, and every file, in.
+	 */
+	public Pipeline(Path root, Target[] targets, Options options, int threads, ExecutorService pool, RunReport report) {
+		this.root = root;
+		this.options = options;
+		this.filter = options.resampleFilter();
+		this.linear = options.linear_light;
+		this.encoder = PngEncoder.forLevel(options.png_level);
+		this.budget = ((long) options.memory_budget << 20)/threads;
+		this.pool = pool;
+		this.report = report;
+		int depth = options.queue_depth;
+		this.targets = targets.clone();
+		boolean manifests = false;
+		for (Target t : targets) manifests |= t.manifest != null;
+		this.manifests = manifests;
+		this.decodeQueue = new ArrayBlockingQueue<Texture>(depth);
+		this.resizeQueue = new ArrayBlockingQueue<Texture>(depth);
+		this.encodeQueue = new ArrayBlockingQueue<Texture>(depth);
+		Stage decode = new Stage("decode", decodeQueue, resizeQueue, threads) {
+			boolean process(Texture t) throws IOException { return decode(t); }
+		};
+		Stage resize = new Stage("resize", resizeQueue, encodeQueue, threads) {
+			boolean process(Texture t) throws IOException { return resize(t); }
+		};
+		Stage encode = new Stage("encode", encodeQueue, null, threads) {
+			boolean process(Texture t) throws IOException { return encode(t); }
+		};
+		this.workers = new Runnable[3*threads];
+		for (int i = 0; i < threads; i++) {
+			workers[3*i] = decode;
+			workers[3*i+1] = resize;
+			workers[3*i+2] = encode;
+		}
+	}
+
+	/**
+	 * Starts every worker of every stage of the pipeline.
+	 */
+	public void start() {
+		timeStart = System.nanoTime();
+		for (Runnable w : workers) running.add(pool.submit(w));
+		if (options.progress_interval > 0) {
+			progress = pool.submit(new Runnable() {
+				public void run() {
+					try {
+						while (true) {
+							Thread.sleep(options.progress_interval);
+							int done = resized.get() + copied.get() + skipped.get() + duplicates.get();
+							System.out.printf("Progress: %d resized, %d copied, %d skipped, %d duplicates (%.0f files/s)%n", resized.get(), copied.get(), skipped.get(), duplicates.get(),
+									done/((System.nanoTime() - timeStart)/1e9)); // Inform the user how far along the pipeline is
+						}
+					} catch (InterruptedException e) {
+						// finish() was called
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Hands a file to the decode stage. Waits if the decode stage is already {@link Main#queue_depth} files behind.
+	 * @param f The file to process. This must be inside of the root folder of the pipeline.
+	 * @throws IOException If the waiting thread is interrupted.
+	 */
+	public void submit(Path f) throws IOException {
+		long time = System.nanoTime();
+		put(decodeQueue, new Texture(f, root.relativize(f).toString().replace('\\', '/')));
+		submitWait += System.nanoTime() - time;
+	}
+
+	/**
+	 * @return The time that {@link #submit(Path)} has spent waiting for the decode stage to catch up, in nanoseconds.
+	 */
+	public long getSubmitWait() {
+		return submitWait;
+	}
+
+	/**
+	 * Tells the pipeline that no more files will be submitted, and waits until every submitted file has been written.
+	 * @return The number of images that were resized.
+	 * @throws IOException If any stage failed to read or write a file.
+	 */
+	public int finish() throws IOException {
+		put(decodeQueue, Texture.END);
+		for (Future<?> w : running) {
+			try {
+				w.get();
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException("Interrupted while waiting for the workers.");
+			} catch (ExecutionException e) {
+				throw new IOException("A worker failed.", e.getCause()); // Workers record their own errors, even an Error (see Stage), so only one thrown while recording it ends up here
+			}
+		}
+		timeFinish = System.nanoTime();
+		if (progress != null) progress.cancel(true);
+		if (failure != null) throw failure;
+		return resized.get();
+	}
+
+	/**
+	 * @return The number of images that were resized. Only valid after {@link #finish()}.
+	 */
+	public int getResized() {
+		return resized.get();
+	}
+
+	/**
+	 * @return The number of non-image files that were copied. Only valid after {@link #finish()}.
+	 */
+	public int getCopied() {
+		return copied.get();
+	}
+
+	/**
+	 * @return The number of files that were skipped for every target, because they had not changed since the previous run. Only valid after {@link #finish()}.
+	 */
+	public int getSkipped() {
+		return skipped.get();
+	}
+
+	/**
+	 * @return The number of files that were written as a copy of an identical file, instead of being resized. Only valid after {@link #finish()}.
+	 */
+	public int getDuplicates() {
+		return duplicates.get();
+	}
+
+	/**
+	 * @return The number of images that were decoded straight to the size of their output, instead of being resized. Only valid after {@link #finish()}.
+	 */
+	public int getSubsampled() {
+		return subsampled.get();
+	}
+
+	/**
+	 * The CPU time saved by writing duplicates as copies, instead of resizing each of them.
+	 * <p>This is the CPU time that the original of each duplicate took to process, minus the time spent finding and writing the duplicate itself.</p>
+	 * @return The time saved, in nanoseconds. Only valid after {@link #finish()}.
+	 */
+	public long getDuplicateSavings() {
+		Set<Texture> seen = Collections.newSetFromMap(new IdentityHashMap<Texture, Boolean>()); // Each original is in (originals) up to twice
+		long saved = 0;
+		for (Texture o : originals.values()) {
+			if (!seen.add(o)) continue;
+			for (Texture c : o.copies) saved += o.cpu - c.cpu;
+		}
+		return saved;
+	}
+
+	/**
+	 * The parallel utilization of this run: the average number of worker threads that were processing textures at once.
+	 * <p>This is the total CPU time that every worker spent processing textures, divided by the time the pipeline was running.
+	 * It shows how busy the workers were kept, not how much faster the run was than on a single thread: a single thread is not run to compare with.
+	 * Time spent waiting on the disk is not counted, so it is below 1 even with a single worker when the disk, or anything other than the workers, takes time.</p>
+	 * @return The average number of busy workers. Only valid after {@link #finish()}.
+	 */
+	public double getUtilization() {
+		return (double) busy.get() / (timeFinish - timeStart);
+	}
+
+	private boolean decode(Texture t) throws IOException {
+		if (t.path.endsWith(".png.mcmeta") && Files.exists(sibling(t.source, ".png.mcmeta", ".png"))) return false; // Handled together with its image
+		boolean image = t.path.endsWith(".png");
+		if (!image && t.path.equals("pack.mcmeta")) return false; // Written by Main for every target
+		byte[] data = null;
+		if (image || manifests) { // Other files are only read to hash them; otherwise, the sink copies them straight from the input
+			data = Files.readAllBytes(t.source);
+			report.read(t.path, data.length);
+		}
+		if (image) { // Read the ".png.mcmeta" that goes with this image, if there is one
+			Path meta = sibling(t.source, ".png", ".png.mcmeta");
+			if (Files.exists(meta)) {
+				t.mcmeta = Files.readAllBytes(meta);
+				report.read(t.path + ".mcmeta", t.mcmeta.length);
+			}
+		}
+		t.needed = new boolean[targets.length];
+		boolean any = false;
+		for (int i = 0; i < targets.length; i++) { // Find out which targets still need this file
+			BuildManifest manifest = targets[i].manifest;
+			if (manifest != null) { // Skip this file for this target if it has not changed since the previous run
+				if (t.hash == null) t.hash = t.mcmeta == null ? BuildManifest.hash(data) : BuildManifest.hash(data, t.mcmeta);
+				if (manifest.isUpToDate(t.path, t.hash) && (t.mcmeta == null || manifest.isUpToDate(t.path + ".mcmeta", t.hash))) continue;
+			}
+			t.needed[i] = true;
+			any = true;
+		}
+		if (!any) {
+			skipped.incrementAndGet();
+			return false;
+		}
+		if (!image) return passthrough(t, data);
+		String needed = Arrays.toString(t.needed); // Identical files are only interchangeable if the same targets need them
+		if (options.dedup) { // If an earlier image has the exact same bytes, do not even decode this one
+			if (t.hash == null) t.hash = t.mcmeta == null ? BuildManifest.hash(data) : BuildManifest.hash(data, t.mcmeta);
+			Texture original = originals.get("bytes " + t.hash + needed);
+			if (original != null) return duplicate(original, t);
+		}
+		ImageReader reader = Tiler.reader(data); // Read this file as an image
+		BufferedImage img = null;
+		String from = ""; // The size that the decoded pixels were taken from, if they are already the output
+		if (reader != null) {
+			try {
+				if (t.mcmeta != null && Animation.mentionsAnimation(t.mcmeta)) t.animation = Animation.parse(t.mcmeta); // Only an animation may change the ".png.mcmeta"
+				int w = reader.getWidth(0), h = reader.getHeight(0);
+				Dimension[] outputs = new Dimension[targets.length];
+				for (int i = 0; i < targets.length; i++) if (t.needed[i]) outputs[i] = targets[i].outputSize(w, h);
+				ImageReadParam param = t.animation == null ? subsampling(reader, w, h, outputs) : null;
+				if (param != null) { // Only decode the pixels that the output is made of
+					img = reader.read(0, destination(reader, param, w/param.getSourceXSubsampling(), h/param.getSourceYSubsampling()));
+					subsampled.incrementAndGet();
+					from = " from " + w + "x" + h; // The decoded pixels are the output, so they are only interchangeable with images shrunk from the same size
+					t.img_out = new BufferedImage[targets.length];
+					t.mcmeta_out = new byte[targets.length][];
+					for (int i = 0; i < targets.length; i++) if (t.needed[i]) t.img_out[i] = img;
+				} else if (t.animation == null && Tiler.memory(w, h, outputs) > budget) { // Too large to resize in a single piece, let the resize stage do it band by band
+					t.data_in = data;
+					if (options.dedup) { // Only identical bytes are found, since the pixels are never all decoded
+						t.copies = new ArrayList<Texture>();
+						Texture original = originals.putIfAbsent("bytes " + t.hash + needed, t);
+						if (original != null) {
+							t.copies = null;
+							t.data_in = null;
+							return duplicate(original, t);
+						}
+					}
+					return true;
+				} else {
+					img = reader.read(0, destination(reader, reader.getDefaultReadParam(), w, h));
+				}
+			} finally {
+				reader.dispose();
+			}
+		}
+		if (img != null) { // If this is indeed an image, pass it on to be resized
+			if (t.img_out == null) t.img_in = img;
+			if (options.dedup) { // If an earlier image has the exact same pixels, do not resize this one
+				t.copies = new ArrayList<Texture>();
+				Texture original = originals.putIfAbsent("pixels " + pixelHash(img, t.mcmeta) + needed + from, t);
+				originals.putIfAbsent("bytes " + t.hash + needed, original == null ? t : original);
+				if (original != null) {
+					RasterPool.release(img);
+					t.copies = null;
+					t.img_in = null;
+					t.img_out = null;
+					t.animation = null;
+					return duplicate(original, t);
+				}
+			}
+			return true;
+		}
+		return passthrough(t, data); // Not an image after all, copy it as it is
+	}
+
+	/**
+	 * Copies a file that is not an image, byte for byte, to every target that needs it.
+	 * @param data The content of the file, or {@code null} if it was not read. It is then copied by {@link PackSink#transfer(String, Path)}, without ever being in memory.
+	 * @return {@code false}, nothing is left for the other stages.
+	 */
+	private boolean passthrough(Texture t, byte[] data) throws IOException {
+		for (int i = 0; i < targets.length; i++) {
+			if (!t.needed[i]) continue;
+			if (data != null) write(targets[i], t, t.path, data);
+			else transfer(targets[i], t);
+		}
+		copied.incrementAndGet();
+		if (options.progress_interval == 0) System.out.println("copied : /" + t.path); // Inform the user which file has just been created
+		return false;
+	}
+
+	private boolean resize(Texture t) throws IOException {
+		if (t.img_out != null) return true; // Already decoded at the size of its output
+		if (t.data_in != null) { // Too large to resize in a single piece
+			t.png_out = new byte[targets.length][];
+			t.mcmeta_out = new byte[targets.length][]; // Never an animation, so a ".png.mcmeta" is written as it is
+			for (int i = 0; i < targets.length; i++) {
+				if (!t.needed[i]) continue;
+				t.png_out[i] = Tiler.resize(t.data_in, targets[i], filter, linear, encoder, budget);
+			}
+			t.data_in = null;
+			return true;
+		}
+		BufferedImage img_in = t.img_in;
+		t.img_out = new BufferedImage[targets.length];
+		t.mcmeta_out = new byte[targets.length][];
+		int[] pixels = t.animation == null ? null : Resampler.pixels(img_in);
+		for (int i = 0; i < targets.length; i++) {
+			if (!t.needed[i]) continue;
+			if (t.animation != null) { // Resize every frame on its own
+				Animation.Result r = t.animation.resize(pixels, img_in.getWidth(), img_in.getHeight(), targets[i], filter, linear);
+				if (r != null) {
+					t.img_out[i] = r.image;
+					t.mcmeta_out[i] = r.mcmeta;
+					continue;
+				}
+			}
+			Dimension d = targets[i].outputSize(img_in.getWidth(), img_in.getHeight());
+			t.img_out[i] = Resampler.resize(img_in, d.width, d.height, filter, linear); // Always from the source, so that the output does not depend on the other sizes
+		}
+		if (pixels != null) RasterPool.release(img_in, pixels);
+		RasterPool.release(img_in);
+		t.img_in = null; // The source image is no longer needed
+		return true;
+	}
+
+	private boolean encode(Texture t) throws IOException {
+		long[] size_out = new long[targets.length];
+		String[] hash_out = new String[targets.length];
+		Arrays.fill(size_out, -1);
+		for (int i = 0; i < targets.length; i++) {
+			byte[] data;
+			if (t.png_out != null) { // Already encoded by the resize stage, band by band
+				data = t.png_out[i];
+				if (data == null) continue;
+			} else {
+				if (t.img_out[i] == null) continue;
+				data = encoder.encode(t.img_out[i]); // Encode (img_out) as a "png" type
+				RasterPool.release(t.img_out[i]);
+				t.img_out[i] = null;
+			}
+			size_out[i] = data.length; // Only the size and hash are kept for copies, never the data
+			hash_out[i] = write(targets[i], t, t.path, data); // and write it to the output resourcepack of this target
+			if (t.mcmeta != null) { // Write the ".png.mcmeta" that goes with it
+				byte[] meta = t.mcmeta_out[i] != null ? t.mcmeta_out[i] : t.mcmeta; // Unless the frames changed, the same bytes as the source
+				t.mcmeta_out[i] = meta;
+				write(targets[i], t, t.path + ".mcmeta", meta);
+			}
+		}
+		if (t.mcmeta != null) copied.incrementAndGet();
+		t.img_out = null;
+		t.png_out = null;
+		int n = resized.incrementAndGet();
+		if (options.progress_interval == 0) System.out.println(n + " : /" + t.path); // Inform the user which file has just been created.
+		if (t.copies == null) {
+			t.mcmeta_out = null;
+			return false;
+		}
+		long time = cpu.getCurrentThreadCpuTime();
+		List<Texture> waiting;
+		synchronized (t) { // Copies found from now on are copied from the output, the ones that were found already are copied now
+			t.size_out = size_out;
+			t.hash_out = hash_out;
+			waiting = new ArrayList<Texture>(t.copies);
+		}
+		for (Texture c : waiting) writeDuplicate(t, c);
+		t.cpu -= cpu.getCurrentThreadCpuTime() - time; // Writing the copies is not part of the cost of processing this texture
+		return false;
+	}
+
+	/**
+	 * Finds out if an image may be decoded straight to the size of its output. See {@link Resampler#subsampleOffset(Resampler.Filter, boolean, int, int)}.
+	 * @param outputs The size of the output for each target, or {@code null} for targets that do not need this image.
+	 * @return The parameters to decode the image with, or {@code null} if it must be decoded in full.
+	 */
+	private ImageReadParam subsampling(ImageReader reader, int w, int h, Dimension[] outputs) {
+		Dimension d = null;
+		for (Dimension o : outputs) {
+			if (o == null) continue;
+			if (d != null) return null; // Several targets, the full image is needed
+			d = o;
+		}
+		if (d == null || (d.width == w && d.height == h)) return null;
+		int ox = Resampler.subsampleOffset(filter, linear, w, d.width), oy = Resampler.subsampleOffset(filter, linear, h, d.height);
+		if (ox < 0 || oy < 0) return null;
+		ImageReadParam param = reader.getDefaultReadParam();
+		param.setSourceSubsampling(w/d.width, h/d.height, ox, oy);
+		return param;
+	}
+
+	/**
+	 * Lets the reader decode into an image leased from the {@link RasterPool}, if the image it would create is of a type that the pool keeps.
+	 * @param param The parameters to decode with.
+	 * @param w The width of the decoded image.
+	 * @param h The height of the decoded image.
+	 * @return {@code param}.
+	 */
+	private static ImageReadParam destination(ImageReader reader, ImageReadParam param, int w, int h) throws IOException {
+		Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0);
+		int type = types.hasNext() ? types.next().getBufferedImageType() : BufferedImage.TYPE_CUSTOM; // The type that the reader would create
+		if (RasterPool.pooled(type)) param.setDestination(RasterPool.image(w, h, type));
+		return param;
+	}
+
+	/**
+	 * Handles a texture with the same content as an earlier one. It is written from the output of the earlier one, either now or once that output exists.
+	 * @return {@code false}, the texture is never passed on to the next stage.
+	 */
+	private boolean duplicate(Texture original, Texture t) throws IOException {
+		synchronized (original) {
+			original.copies.add(t);
+			if (original.size_out == null) return false; // Not written yet, (original) writes this one when it is
+		}
+		writeDuplicate(original, t);
+		return false;
+	}
+
+	/**
+	 * Writes a texture as a copy of the output of an earlier one, which was already given to the sink of every target.
+	 */
+	private void writeDuplicate(Texture original, Texture t) throws IOException {
+		for (int i = 0; i < targets.length; i++) {
+			if (original.size_out[i] < 0) continue;
+			copy(targets[i], t, t.path, original.path, original.hash_out[i], original.size_out[i]);
+			if (t.mcmeta != null) {
+				byte[] meta = original.mcmeta_out[i];
+				copy(targets[i], t, t.path + ".mcmeta", original.path + ".mcmeta", targets[i].manifest == null ? null : BuildManifest.hash(meta), meta.length);
+			}
+		}
+		if (t.mcmeta != null) copied.incrementAndGet();
+		duplicates.incrementAndGet();
+		if (options.progress_interval == 0) System.out.println("copied : /" + t.path + " (same as /" + original.path + ")"); // Inform the user which file has just been created
+	}
+
+	/**
+	 * Writes a single output file to a target, records it in the manifest of the target, and records the time it took in the {@link RunReport}.
+	 * @return The hash of the file, if the target has a manifest, or {@code null}.
+	 */
+	private String write(Target target, Texture t, String path, byte[] data) throws IOException {
+		long time = System.nanoTime();
+		target.sink.write(path, data);
+		String hash = null;
+		if (target.manifest != null) target.manifest.record(path, t.hash, hash = BuildManifest.hash(data));
+		time = System.nanoTime() - time;
+		writing.get()[0] += time;
+		report.time("write", time);
+		report.written(path, data.length);
+		return hash;
+	}
+
+	/**
+	 * Writes a single output file to a target as a copy of a file that was already written, the same way as {@link #write(Target, Texture, String, byte[])}.
+	 * @param original The file that was already written with the same content.
+	 * @param hash The hash of its content, or {@code null} if the target has no manifest.
+	 * @param size The size of its content, in bytes.
+	 */
+	private void copy(Target target, Texture t, String path, String original, String hash, long size) throws IOException {
+		long time = System.nanoTime();
+		target.sink.copy(path, original);
+		if (target.manifest != null) target.manifest.record(path, t.hash, hash);
+		time = System.nanoTime() - time;
+		writing.get()[0] += time;
+		report.time("write", time);
+		report.written(path, size);
+	}
+
+	/**
+	 * Copies a file of the input resourcepack to a target as it is, and records the time it took in the {@link RunReport}. Only used for targets without a manifest.
+	 */
+	private void transfer(Target target, Texture t) throws IOException {
+		long time = System.nanoTime();
+		long size = Files.size(t.source);
+		target.sink.transfer(t.path, t.source);
+		time = System.nanoTime() - time;
+		writing.get()[0] += time;
+		report.time("write", time);
+		report.read(t.path, size);
+		report.written(t.path, size);
+	}
+
+	/**
+	 * Hashes the pixels of an image, so that images with the same pixels are found even if their files differ (i.e. they were saved by different programs).
+	 */
+	private static String pixelHash(BufferedImage img, byte[] mcmeta) {
+		int[] pixels = Resampler.pixels(img);
+		ByteBuffer b = ByteBuffer.allocate(8 + 4*pixels.length);
+		b.putInt(img.getWidth()).putInt(img.getHeight()).asIntBuffer().put(pixels);
+		RasterPool.release(img, pixels);
+		return mcmeta == null ? BuildManifest.hash(b.array()) : BuildManifest.hash(b.array(), mcmeta);
+	}
+
+	/**
+	 * Finds a file next to another file, i.e. "{@code kelp.png.mcmeta}" next to "{@code kelp.png}".
+	 */
+	private static Path sibling(Path p, String suffix, String replacement) {
+		String name = p.getFileName().toString();
+		return p.resolveSibling(name.substring(0, name.length() - suffix.length()) + replacement);
+	}
+
+	/**
+	 * Records the first error of any stage. Every stage then only drains its queue, and {@link #finish()} throws it.
+	 */
+	private synchronized void fail(IOException e) {
+		if (failure == null) failure = e;
+	}
+
+	private void put(BlockingQueue<Texture> q, Texture t) throws IOException {
+		try {
+			q.put(t);
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException("Interrupted while waiting on a full queue.");
+		}
+	}
+
+	/**
+	 * A {@code Stage} takes textures from one queue, processes them, and passes them on to the next queue.
+	 * <p>Every worker thread of a stage runs the same {@code Stage}. When a worker takes {@link Texture#END}, it puts it back for the other workers of the stage,
+	 * and the last worker to stop passes it on to the next stage.</p>
+	 * <p>Once any stage has failed, every stage keeps draining its queue without processing, so that no thread is left waiting on a full queue.
+	 * Any {@link Throwable} counts as a failure, even an {@link Error} such as {@link OutOfMemoryError}, and a worker always passes {@link Texture#END} on when it stops,
+	 * so that the next stage, {@link #submit(Path)} and {@link #finish()} never wait for a worker that is gone.</p>
+	 */
+	private abstract class Stage implements Runnable {
+		private final String name; // The name of this stage in the RunReport
+		private final BlockingQueue<Texture> in;
+		private final BlockingQueue<Texture> next;
+		private final AtomicInteger running; // The number of workers of this stage that have not stopped yet
+
+		Stage(String name, BlockingQueue<Texture> in, BlockingQueue<Texture> next, int workers) {
+			this.name = name;
+			this.in = in;
+			this.next = next;
+			this.running = new AtomicInteger(workers);
+		}
+
+		/**
+		 * @return {@code true} if the texture should be passed on to the next stage.
+		 */
+		abstract boolean process(Texture t) throws IOException;
+
+		public void run() {
+			try {
+				while (true) {
+					Texture t = in.take();
+					if (t == Texture.END) {
+						in.put(t); // Let the other workers of this stage see it too. Nothing else is added to (in) anymore, so this never waits.
+						break;
+					}
+					if (failure != null) continue; // Something already failed, only drain the queue
+					try {
+						long time = cpu.getCurrentThreadCpuTime();
+						long wall = System.nanoTime(), wrote = writing.get()[0];
+						boolean pass = process(t);
+						time = cpu.getCurrentThreadCpuTime() - time;
+						wall = System.nanoTime() - wall;
+						t.cpu += time;
+						t.time += wall;
+						busy.addAndGet(time);
+						report.time(name, wall - (writing.get()[0] - wrote)); // Writing is recorded on its own
+						if (pass && next != null) next.put(t);
+						else report.done(t.path, t.time);
+					} catch (Throwable e) { // Even an Error, so that the run fails instead of hanging
+						fail(e instanceof IOException ? (IOException) e : new IOException("Failed to process /" + t.path, e));
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (Throwable e) { // Only while waiting on a queue
+				fail(new IOException("A worker of the " + name + " stage failed.", e));
+			} finally {
+				if (running.decrementAndGet() == 0 && next != null) end(); // If this was the last worker, tell the next stage that there is nothing left
+			}
+		}
+
+		/**
+		 * Passes {@link Texture#END} on to the next stage, even if this thread is interrupted, since the next stage waits for it.
+		 */
+		private void end() {
+			boolean interrupted = false;
+			while (true) {
+				try {
+					next.put(Texture.END);
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,383 @@
+package main;
+
+import java.awt.Dimension;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * The {@code Plan} class describes the work of a run before any of it is done, from a scan of the input resourcepack that decodes no pixels.
+ * <p>Of each image, only the "IHDR" chunk at the very start of the file is read, to find its width and height. From that, the plan finds:
+ * <ul>
+ * 	<li>The number of files, images and animated images of each category (see {@link RunReport}), and their size in bytes.</li>
+ * 	<li>How many images of each source size are resized to each output size.</li>
+ * 	<li>The projected size of the output, assuming that every image compresses as well (per pixel) as its source does, besides a fixed overhead for each file.</li>
+ * 	<li>The estimated peak memory of the images being processed at once: the largest image for every resize worker, with everything that resizing it needs,
+ * 	and the next largest for every decode worker and every place in the queue in front of the resize stage, decoded. Each is at most the share of {@link Main#memory_budget} of a single worker.</li>
+ * 	<li>The estimated duration of the run, from the number of files, source pixels and output pixels.</li>
+ * </ul>
+ * </p>
+ * <p>With {@link Main#dry_run}, the plan is printed, and nothing is written. Otherwise, if {@link Main#largest_first} is {@code true}, the run hands its files to the {@link Pipeline}
+ * in the order of {@link #schedule()}, largest images first, so that the slowest textures do not start last and leave every other worker idle at the end of the run.</p>
+ * <p>With {@link Main#shards}, {@link #shard(int, int)} splits the plan into parts of about the same estimated duration, one for each process.</p>
+ * <p>The estimates count every file as if it had to be processed, i.e. they ignore {@link Main#incremental} and {@link Main#dedup}.</p>
+ */
+public class Plan {
+
+	private static final int PNG_OVERHEAD = 100; // The bytes of a "png" file that do not depend on its number of pixels: the signature, "IHDR", "PLTE", the ends of the chunks and of the deflate stream
+	// The cost of a run, measured with png_level 9 on the "Default" resourcepack and on large generated textures
+	private static final double NANOS_PER_SOURCE_PIXEL = 80; // Decoding and resizing
+	private static final double NANOS_PER_OUTPUT_PIXEL = 1400; // Filtering and compressing
+	private static final double NANOS_PER_FILE = 200000; // Reading a file, and copying it if it is not an image
+	private static final double NANOS_PER_OUTPUT = 1600000; // Every other step of an image, once for each output resourcepack
+	private static final double NANOS_FIXED = 5e8; // Starting the run, and compiling the code of every stage
+
+	private static final byte[] SIGNATURE = {(byte) 137, 'P', 'N', 'G', '\r', '\n', 26, '\n'};
+
+	private final short[] sizes;
+	private final boolean useScale;
+	private final int workers;
+	private final int queueDepth;
+	private final long share; // The memory budget of a single resize worker, in bytes
+	private final List<Entry> entries = new ArrayList<Entry>();
+
+	/**
+	 * A single file of the input resourcepack.
+	 */
+	private static class Entry {
+		final Path source;
+		final String path;
+		final long bytes;
+		int width, height; // 0 if this is not an image
+		boolean animated;
+
+		Entry(Path source, String path, long bytes) {
+			this.source = source;
+			this.path = path;
+			this.bytes = bytes;
+		}
+
+		long pixels() {
+			return (long) width*height;
+		}
+	}
+
+	private Plan(Options o) {
+		this.sizes = Main.parseSizes(o.sizes, o.size);
+		this.useScale = o.useScale;
+		this.workers = o.workers();
+		this.queueDepth = o.queue_depth;
+		this.share = ((long) o.memory_budget << 20)/workers;
+	}
+
+	private Plan(Plan p) {
+		this.sizes = p.sizes;
+		this.useScale = p.useScale;
+		this.workers = p.workers;
+		this.queueDepth = p.queueDepth;
+		this.share = p.share;
+	}
+
+	/**
+	 * Scans a resourcepack.
+	 * @param root The root folder of the resourcepack, on the disk or inside of a ".zip".
+	 * @param rules The files to include; excluded folders are not walked at all.
+	 * @param o The options of the run.
+	 * @return The plan of the run.
+	 * @throws IOException If the resourcepack cannot be read.
+	 */
+	public static Plan scan(final Path root, final PathRules rules, Options o) throws IOException {
+		final Plan plan = new Plan(o);
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+				String rel = root.relativize(dir).toString().replace('\\', '/');
+				if (rules.prunes(rel) == null) return FileVisitResult.CONTINUE;
+				System.out.println("Removed " + rel + "."); // Inform the user
+				return FileVisitResult.SKIP_SUBTREE;
+			}
+
+			public FileVisitResult visitFile(Path f, BasicFileAttributes attrs) throws IOException {
+				String rel = root.relativize(f).toString().replace('\\', '/');
+				if (rules.includes(rel) && !rel.equals("pack.mcmeta")) plan.add(new Entry(f, rel, attrs.size()));
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		return plan;
+	}
+
+	private void add(Entry e) throws IOException {
+		if (e.path.endsWith(".png")) {
+			int[] size = header(e.source);
+			if (size != null) {
+				e.width = size[0];
+				e.height = size[1];
+				Path meta = e.source.resolveSibling(e.source.getFileName() + ".mcmeta");
+				e.animated = Files.exists(meta) && Animation.mentionsAnimation(Files.readAllBytes(meta));
+			}
+		}
+		entries.add(e);
+	}
+
+	/**
+	 * Reads the width and height of an image, without decoding any of its pixels.
+	 * @return {@code {width, height}}, or {@code null} if the file is not an image.
+	 */
+	private static int[] header(Path f) throws IOException {
+		byte[] head = new byte[24]; // The signature, and the length, type, width and height of "IHDR"
+		int n = 0;
+		InputStream in = Files.newInputStream(f);
+		try {
+			int r;
+			while (n < head.length && (r = in.read(head, n, head.length - n)) > 0) n += r;
+		} finally {
+			in.close();
+		}
+		boolean png = n == head.length && head[12] == 'I' && head[13] == 'H' && head[14] == 'D' && head[15] == 'R';
+		for (int i = 0; png && i < SIGNATURE.length; i++) png = head[i] == SIGNATURE[i];
+		if (png) return new int[] {getInt(head, 16), getInt(head, 20)};
+
+		// Not a "png" after all (i.e. a ".jpg" with the wrong name), let ImageIO read whatever header it has
+		ImageInputStream stream = ImageIO.createImageInputStream(Files.newInputStream(f));
+		try {
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+			if (!readers.hasNext()) return null;
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(stream, true, true);
+				return new int[] {reader.getWidth(0), reader.getHeight(0)};
+			} catch (IOException e) {
+				return null; // Broken, the run will copy it as it is
+			} finally {
+				reader.dispose();
+			}
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * @return Every file of the plan, in the order that they should be handed to the {@link Pipeline}: images from the most source pixels to the fewest, then every other file in the order they were found.
+	 */
+	public List<Path> schedule() {
+		List<Path> order = new ArrayList<Path>(entries.size());
+		for (Entry e : sorted()) order.add(e.source);
+		return order;
+	}
+
+	private List<Entry> sorted() {
+		List<Entry> sorted = new ArrayList<Entry>(entries);
+		Collections.sort(sorted, new Comparator<Entry>() { // Stable, so files of the same size keep the order of the walk
+			public int compare(Entry a, Entry b) { return Long.compare(b.pixels(), a.pixels()); }
+		});
+		return sorted;
+	}
+
+	/**
+	 * Finds the files of a single shard (see {@link Main#shards}).
+	 * <p>Files are dealt out from the most expensive to the cheapest, each to the shard with the lowest estimated duration so far, so every shard takes about as long.
+	 * Files that cost the same are dealt out in the order of their path, not of the walk, so every process finds the same shards, whatever order its file system lists them in.
+	 * Every file is in exactly one shard.</p>
+	 * @param index The shard, from 1 to {@code count}.
+	 * @param count The number of shards.
+	 * @return The plan of the files of that shard, in the order that they were found.
+	 */
+	public Plan shard(int index, int count) {
+		List<Entry> byCost = new ArrayList<Entry>(entries);
+		Collections.sort(byCost, new Comparator<Entry>() {
+			public int compare(Entry a, Entry b) {
+				int c = Double.compare(nanos(b), nanos(a));
+				return c != 0 ? c : a.path.compareTo(b.path);
+			}
+		});
+		double[] load = new double[count]; // The estimated duration of each shard so far
+		Set<Entry> mine = new HashSet<Entry>();
+		for (Entry e : byCost) {
+			int least = 0;
+			for (int i = 1; i < count; i++) {
+				if (load[i] < load[least]) least = i;
+			}
+			load[least] += nanos(e);
+			if (least == index-1) mine.add(e);
+		}
+		Plan p = new Plan(this);
+		for (Entry e : entries) {
+			if (mine.contains(e)) p.entries.add(e);
+		}
+		return p;
+	}
+
+	/**
+	 * @return The number of files of the plan.
+	 */
+	public int getFiles() {
+		return entries.size();
+	}
+
+	/**
+	 * @return The estimated duration of the run, in seconds.
+	 */
+	public double getEstimatedSeconds() {
+		double nanos = 0;
+		for (Entry e : entries) nanos += nanos(e);
+		return (NANOS_FIXED + nanos/Math.min(workers, Runtime.getRuntime().availableProcessors()))/1e9; // More workers than processors do not make it any faster
+	}
+
+	/**
+	 * @return The estimated time that a single worker spends on a file, in nanoseconds.
+	 */
+	private double nanos(Entry e) {
+		double nanos = e.pixels()*NANOS_PER_SOURCE_PIXEL + NANOS_PER_FILE;
+		if (e.width == 0) return nanos;
+		for (short s : sizes) {
+			Dimension d = outputSize(e, s);
+			nanos += (double) d.width*d.height*NANOS_PER_OUTPUT_PIXEL + NANOS_PER_OUTPUT;
+		}
+		return nanos;
+	}
+
+	/**
+	 * @return The estimated peak memory of the images being processed at once, in bytes. This does not include the memory that the program needs besides them.
+	 */
+	public long getEstimatedPeakMemory() {
+		long peak = 0;
+		int i = 0;
+		for (Entry e : sorted()) { // From the largest image to the smallest
+			if (e.width == 0) break;
+			if (i < workers) { // Being resized, with everything that resizing needs
+				Dimension[] outputs = new Dimension[sizes.length];
+				for (int j = 0; j < sizes.length; j++) outputs[j] = outputSize(e, sizes[j]);
+				peak += Math.min(Tiler.memory(e.width, e.height, outputs), share); // Larger images are resized band by band, within the share
+			} else if (i < 2*workers + queueDepth) { // Decoded, and waiting to be resized
+				peak += Math.min(4*e.pixels(), share);
+			} else {
+				break;
+			}
+			i++;
+		}
+		return peak;
+	}
+
+	/**
+	 * @return The plan, made of the types that {@link Json#write(Object)} accepts.
+	 */
+	public Map<String, Object> toJson() {
+		Map<String, long[]> categories = new TreeMap<String, long[]>(); // {files, images, animated, bytes in, projected bytes out} for each category
+		Map<String, Integer> resizes = new TreeMap<String, Integer>(); // The number of images of each source size resized to each output size
+		long[] total = new long[5];
+		for (Entry e : entries) {
+			long[] c = categories.get(RunReport.categoryOf(e.path));
+			if (c == null) categories.put(RunReport.categoryOf(e.path), c = new long[5]);
+			long out = 0;
+			for (short s : sizes) {
+				if (e.width == 0) {
+					out += e.bytes; // Copied as it is
+					continue;
+				}
+				Dimension d = outputSize(e, s);
+				out += PNG_OVERHEAD + Math.round((double) Math.max(0, e.bytes - PNG_OVERHEAD)*d.width*d.height/e.pixels());
+				String key = e.width + "x" + e.height + " -> " + d.width + "x" + d.height;
+				Integer n = resizes.get(key);
+				resizes.put(key, n == null ? 1 : n+1);
+			}
+			long[] add = {1, e.width == 0 ? 0 : 1, e.animated ? 1 : 0, e.bytes, out};
+			for (int i = 0; i < add.length; i++) {
+				c[i] += add[i];
+				total[i] += add[i];
+			}
+		}
+
+		Map<String, Object> root = new LinkedHashMap<String, Object>();
+		root.put("files", total[0]);
+		root.put("images", total[1]);
+		root.put("animated", total[2]);
+		root.put("bytes_in", total[3]);
+		root.put("projected_bytes_out", total[4]);
+		root.put("estimated_seconds", Math.round(getEstimatedSeconds()*100)/100.0);
+		root.put("estimated_peak_memory_bytes", getEstimatedPeakMemory());
+		Map<String, Object> c = new LinkedHashMap<String, Object>();
+		for (Map.Entry<String, long[]> e : categories.entrySet()) {
+			Map<String, Object> m = new LinkedHashMap<String, Object>();
+			m.put("files", e.getValue()[0]);
+			m.put("images", e.getValue()[1]);
+			m.put("animated", e.getValue()[2]);
+			m.put("bytes_in", e.getValue()[3]);
+			m.put("projected_bytes_out", e.getValue()[4]);
+			c.put(e.getKey(), m);
+		}
+		root.put("categories", c);
+		List<Map.Entry<String, Integer>> sorted = new ArrayList<Map.Entry<String, Integer>>(resizes.entrySet());
+		Collections.sort(sorted, new Comparator<Map.Entry<String, Integer>>() { // Most common first
+			public int compare(Map.Entry<String, Integer> a, Map.Entry<String, Integer> b) { return b.getValue() - a.getValue(); }
+		});
+		Map<String, Object> r = new LinkedHashMap<String, Object>();
+		for (Map.Entry<String, Integer> e : sorted) r.put(e.getKey(), e.getValue());
+		root.put("resizes", r);
+		List<Object> largest = new ArrayList<Object>();
+		for (Entry e : sorted()) { // The first images of the schedule
+			if (largest.size() == 10 || e.width == 0) break;
+			largest.add(e.path + " (" + e.width + "x" + e.height + ")");
+		}
+		root.put("largest", largest);
+		return root;
+	}
+
+	/**
+	 * Prints the plan for the user.
+	 * @param out Where to print it.
+	 */
+	@SuppressWarnings("unchecked")
+	public void print(PrintStream out) {
+		Map<String, Object> plan = toJson();
+		out.println("Plan: " + plan.get("files") + " file(s), " + plan.get("images") + " image(s), " + plan.get("animated") + " animated");
+		out.printf("  %-14s %8s %8s %14s %16s%n", "category", "files", "images", "bytes in", "projected out");
+		for (Map.Entry<String, Object> e : ((Map<String, Object>) plan.get("categories")).entrySet()) {
+			Map<String, Object> c = (Map<String, Object>) e.getValue();
+			out.printf("  %-14s %8d %8d %14d %16d%n", e.getKey(), c.get("files"), c.get("images"), c.get("bytes_in"), c.get("projected_bytes_out"));
+		}
+		out.printf("  %-14s %8d %8d %14d %16d%n", "total", plan.get("files"), plan.get("images"), plan.get("bytes_in"), plan.get("projected_bytes_out"));
+		out.println("Most common sizes:");
+		int n = 0;
+		for (Map.Entry<String, Object> e : ((Map<String, Object>) plan.get("resizes")).entrySet()) {
+			if (n++ == 10) break;
+			out.println("  " + e.getKey() + " : " + e.getValue());
+		}
+		out.println("Largest textures (resized first):");
+		for (Object f : (List<Object>) plan.get("largest")) out.println("  " + f);
+		out.printf("Estimated time: %.1f seconds with %d worker(s) per stage; estimated peak memory of images: %.1f MB%n",
+				plan.get("estimated_seconds"), workers, (Long) plan.get("estimated_peak_memory_bytes")/1048576.0);
+	}
+
+	/**
+	 * @return The size of the output of an image for one size. Every frame of an animated strip is resized on its own (see {@link Animation}).
+	 */
+	private Dimension outputSize(Entry e, short size) {
+		if (e.animated && !useScale && e.height > e.width && e.height % e.width == 0) { // Square frames, stacked
+			Dimension d = Target.outputSize(e.width, e.width, size, false);
+			return new Dimension(d.width, d.height*(e.height/e.width));
+		}
+		return Target.outputSize(e.width, e.height, size, useScale);
+	}
+
+	private static int getInt(byte[] b, int off) {
+		return ((b[off] & 0xFF) << 24) | ((b[off+1] & 0xFF) << 16) | ((b[off+2] & 0xFF) << 8) | (b[off+3] & 0xFF);
+	}
+}
@@ -0,0 +1,232 @@
+package main;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * The {@code PngDecoder} reads the rows of a "png" file one after another, from the top, for the {@link Tiler}.
+ * <p>{@link javax.imageio.ImageIO} can only decode a part of a "png" (see {@link javax.imageio.ImageReadParam#setSourceRegion(java.awt.Rectangle)}) by inflating every row above it again,
+ * so decoding a large image one band at a time takes time in the square of the number of bands. This decoder inflates and unfilters each row once,
+ * and only keeps the previous row, which the next one is filtered against.</p>
+ * <p>Only the common kinds of "png" are read: non-interlaced 8-bit RGB and RGBA, and palette images of any bit depth. {@link #open(byte[])} returns {@code null} for every other kind
+ * (grayscale, 16-bit, interlaced, with a transparent color or a color profile), which are left to {@code ImageIO}. Every pixel is exactly the same as the one that {@code ImageIO} decodes.</p>
+ */
+public class PngDecoder {
+
+	private static final byte[] SIGNATURE = {(byte) 137, 'P', 'N', 'G', '\r', '\n', 26, '\n'};
+
+	private static final int RGB = 2, PALETTE = 3, RGBA = 6; // The "png" color types that are read
+
+	private final byte[] data; // The whole file
+	private final int w, h;
+	private final int type, depth;
+	private final int[] palette; // The ARGB color of every index, for a palette image
+	private final int[] idat; // The offset and length of every "IDAT" chunk, one after another
+	private int chunk; // The next "IDAT" chunk to give to the inflater
+	private final Inflater inflater = new Inflater();
+	private final int bpp; // The bytes of a whole pixel (at least 1), for the filters
+	private byte[] prev, cur; // The previous row and the current row, unfiltered
+	private final byte[] filter = new byte[1]; // The filter of the current row
+	private int y; // The number of rows read so far
+
+	private PngDecoder(byte[] data, int w, int h, int type, int depth, int[] palette, int[] idat) {
+		this.data = data;
+		this.w = w;
+		this.h = h;
+		this.type = type;
+		this.depth = depth;
+		this.palette = palette;
+		this.idat = idat;
+		int channels = type == RGBA ? 4 : (type == RGB ? 3 : 1);
+		this.bpp = Math.max(1, channels*depth/8);
+		int stride = (int) (((long) w*channels*depth + 7)/8);
+		this.prev = new byte[stride];
+		this.cur = new byte[stride];
+	}
+
+	/**
+	 * Reads the chunks of a "png" file, without inflating any row yet.
+	 * @param data The content of the file.
+	 * @return A decoder at the first row of the image, or {@code null} if the file is not a "png" of a kind that this decoder reads.
+	 */
+	public static PngDecoder open(byte[] data) {
+		if (data.length < SIGNATURE.length) return null;
+		for (int i = 0; i < SIGNATURE.length; i++) if (data[i] != SIGNATURE[i]) return null;
+		int w = 0, h = 0, type = -1, depth = 0;
+		byte[] plte = null, trns = null;
+		ArrayList<Integer> idat = new ArrayList<Integer>();
+		int p = SIGNATURE.length;
+		while (p + 8 <= data.length) {
+			int len = getInt(data, p);
+			String name = new String(data, p+4, 4, StandardCharsets.ISO_8859_1);
+			int start = p+8;
+			if (len < 0 || start + len > data.length) return null; // Cut short, let ImageIO report it
+			if (name.equals("IHDR")) {
+				if (len < 13) return null;
+				w = getInt(data, start);
+				h = getInt(data, start+4);
+				depth = data[start+8];
+				type = data[start+9];
+				if (data[start+10] != 0 || data[start+11] != 0 || data[start+12] != 0) return null; // Unknown compression or filter method, or interlaced
+			} else if (name.equals("PLTE")) {
+				plte = new byte[len];
+				System.arraycopy(data, start, plte, 0, len);
+			} else if (name.equals("tRNS")) {
+				trns = new byte[len];
+				System.arraycopy(data, start, trns, 0, len);
+			} else if (name.equals("iCCP")) {
+				return null; // ImageIO may decode into the color space of the profile
+			} else if (name.equals("IDAT")) {
+				idat.add(start);
+				idat.add(len);
+			} else if (name.equals("IEND")) {
+				break;
+			}
+			p = start + len + 4; // After the CRC
+		}
+		if (w <= 0 || h <= 0 || idat.isEmpty()) return null;
+		boolean supported = (type == RGB || type == RGBA) ? depth == 8 && trns == null : type == PALETTE && (depth == 1 || depth == 2 || depth == 4 || depth == 8) && plte != null;
+		if (!supported) return null;
+		int[] palette = null;
+		if (type == PALETTE) {
+			palette = new int[256]; // Indices past the end of the palette are transparent black, the same as Resampler.pixels()
+			for (int i = 0; i < plte.length/3 && i < 256; i++) {
+				int a = trns != null && i < trns.length ? trns[i] & 0xFF : 0xFF;
+				palette[i] = (a << 24) | ((plte[3*i] & 0xFF) << 16) | ((plte[3*i+1] & 0xFF) << 8) | (plte[3*i+2] & 0xFF);
+			}
+		}
+		int[] chunks = new int[idat.size()];
+		for (int i = 0; i < chunks.length; i++) chunks[i] = idat.get(i);
+		return new PngDecoder(data, w, h, type, depth, palette, chunks);
+	}
+
+	public int getWidth() {
+		return w;
+	}
+
+	public int getHeight() {
+		return h;
+	}
+
+	/**
+	 * Reads the next rows of the image.
+	 * @param argb Where to put the ARGB pixels of the rows, row by row.
+	 * @param off The index of the first pixel in {@code argb}.
+	 * @param rows The number of rows.
+	 * @throws IOException If the file is cut short, or its data cannot be inflated.
+	 */
+	public void read(int[] argb, int off, int rows) throws IOException {
+		if (y + rows > h) throw new IllegalStateException("The image only has " + h + " rows.");
+		for (int r = 0; r < rows; r++) {
+			row();
+			if (argb != null) pixels(argb, off + r*w);
+		}
+	}
+
+	/**
+	 * Skips rows of the image, without converting them to pixels. Every row still has to be inflated.
+	 * @param rows The number of rows.
+	 * @throws IOException If the file is cut short, or its data cannot be inflated.
+	 */
+	public void skip(int rows) throws IOException {
+		read(null, 0, rows);
+	}
+
+	/**
+	 * Releases the inflater. Nothing may be read after this.
+	 */
+	public void close() {
+		inflater.end();
+	}
+
+	/**
+	 * Inflates and unfilters the next row into (cur).
+	 */
+	private void row() throws IOException {
+		byte[] t = prev;
+		prev = cur;
+		cur = t;
+		fill(filter);
+		fill(cur);
+		int n = cur.length;
+		switch (filter[0] & 0xFF) {
+		case 0: // None
+			break;
+		case 1: // Sub
+			for (int i = bpp; i < n; i++) cur[i] += cur[i-bpp];
+			break;
+		case 2: // Up
+			for (int i = 0; i < n; i++) cur[i] += prev[i];
+			break;
+		case 3: // Average
+			for (int i = 0; i < n; i++) cur[i] += ((i < bpp ? 0 : cur[i-bpp] & 0xFF) + (prev[i] & 0xFF)) >>> 1;
+			break;
+		case 4: // Paeth
+			for (int i = 0; i < n; i++) {
+				int a = i < bpp ? 0 : cur[i-bpp] & 0xFF, b = prev[i] & 0xFF, c = i < bpp ? 0 : prev[i-bpp] & 0xFF;
+				int pa = Math.abs(b - c), pb = Math.abs(a - c), pc = Math.abs(a + b - 2*c);
+				cur[i] += pa <= pb && pa <= pc ? a : (pb <= pc ? b : c);
+			}
+			break;
+		default:
+			throw new IOException("Unknown filter " + (filter[0] & 0xFF) + " in row " + y + ".");
+		}
+		y++;
+	}
+
+	/**
+	 * Inflates exactly enough bytes to fill {@code b}, giving the inflater one "IDAT" chunk after another.
+	 */
+	private void fill(byte[] b) throws IOException {
+		int n = 0;
+		try {
+			while (n < b.length) {
+				int k = inflater.inflate(b, n, b.length - n);
+				n += k;
+				if (k > 0) continue;
+				if (inflater.needsInput()) {
+					if (chunk >= idat.length) throw new IOException("The image ends at row " + y + " of " + h + ".");
+					inflater.setInput(data, idat[chunk], idat[chunk+1]);
+					chunk += 2;
+				} else if (inflater.finished() || inflater.needsDictionary()) {
+					throw new IOException("The image ends at row " + y + " of " + h + ".");
+				}
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("The data of the image cannot be inflated.", e);
+		}
+	}
+
+	/**
+	 * Converts the current row to ARGB pixels.
+	 */
+	private void pixels(int[] argb, int off) {
+		byte[] b = cur;
+		switch (type) {
+		case RGBA:
+			for (int x = 0, j = 0; x < w; x++, j += 4) {
+				argb[off + x] = ((b[j+3] & 0xFF) << 24) | ((b[j] & 0xFF) << 16) | ((b[j+1] & 0xFF) << 8) | (b[j+2] & 0xFF);
+			}
+			break;
+		case RGB:
+			for (int x = 0, j = 0; x < w; x++, j += 3) {
+				argb[off + x] = 0xFF000000 | ((b[j] & 0xFF) << 16) | ((b[j+1] & 0xFF) << 8) | (b[j+2] & 0xFF);
+			}
+			break;
+		default: { // Palette, several pixels in each byte below 8 bits, the leftmost one in the highest bits
+			int perByte = 8/depth, mask = (1 << depth) - 1;
+			for (int x = 0; x < w; x++) {
+				int shift = 8 - depth*(x % perByte + 1);
+				argb[off + x] = palette[((b[x/perByte] & 0xFF) >>> shift) & mask];
+			}
+		}
+		}
+	}
+
+	private static int getInt(byte[] b, int off) {
+		return ((b[off] & 0xFF) << 24) | ((b[off+1] & 0xFF) << 16) | ((b[off+2] & 0xFF) << 8) | (b[off+3] & 0xFF);
+	}
+}
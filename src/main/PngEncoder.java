@@ -0,0 +1,470 @@
+package main;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * The {@code PngEncoder} class writes images as "png" files, without going through {@link javax.imageio.ImageIO}.
+ * <p>Unlike {@code ImageIO}, which always writes 32-bit RGBA, the encoder picks the smallest color type that still stores every pixel exactly:
+ * <ul>
+ * 	<li><strong>palette</strong> (1, 2, 4 or 8 bits per pixel), if the image has 256 colors or less. Transparency is kept with a "tRNS" chunk.</li>
+ * 	<li><strong>grayscale</strong> or <strong>grayscale with alpha</strong>, if every pixel is gray.</li>
+ * 	<li><strong>RGB</strong>, if every pixel is opaque.</li>
+ * 	<li><strong>RGBA</strong> otherwise.</li>
+ * </ul>
+ * For small images, where the palette itself may cost more than it saves, both the palette and the direct version are encoded and the smaller one is kept.</p>
+ * <p>Each row is filtered with whichever of the five "png" filters gives the smallest sum of absolute differences (rows of palette images are not filtered,
+ * as recommended by the "png" specification). The filtered rows are compressed with the given deflate level.</p>
+ * <p>Very large images may also be written a band of rows at a time with {@link #start(int, int, OutputStream)}, without ever having every pixel in memory at once.
+ * The color type is then not known in advance, so they are always written as RGBA.</p>
+ * <p>A {@code PngEncoder} may be used by several threads at once. Each thread keeps the buffers it encodes with (rows, hash tables, compressed data) from one image to the next,
+ * grown to the largest image it has encoded, so encoding an image allocates little more than the "png" file that it returns.</p>
+ */
+public class PngEncoder {
+
+	private static final byte[] SIGNATURE = {(byte) 137, 'P', 'N', 'G', '\r', '\n', 26, '\n'};
+
+	private static final int GRAY = 0, RGB = 2, PALETTE = 3, GRAY_ALPHA = 4, RGBA = 6; // The "png" color types
+
+	private static final int SMALL = 64*64; // Images with this many pixels or less are encoded both ways
+
+	private static final int CHUNK = 1 << 16; // The size of each "IDAT" chunk of an image written by start()
+
+	private final int level;
+
+	private final ThreadLocal<Deflater> deflaters = new ThreadLocal<Deflater>();
+
+	private static final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+		protected Scratch initialValue() { return new Scratch(); }
+	};
+
+	private static final PngEncoder[] shared = new PngEncoder[10]; // One encoder for each level, see forLevel(int)
+
+	/**
+	 * @param level The deflate level, from 0 (fastest) to 9 (smallest).
+	 */
+	public PngEncoder(int level) {
+		this.level = level;
+	}
+
+	/**
+	 * Gets an encoder that is shared by every run of this program, so that the {@link Deflater} of each thread is kept from one run to the next.
+	 * @param level The deflate level, from 0 (fastest) to 9 (smallest).
+	 * @return The shared encoder for that level.
+	 */
+	public static PngEncoder forLevel(int level) {
+		synchronized (shared) {
+			if (shared[level] == null) shared[level] = new PngEncoder(level);
+			return shared[level];
+		}
+	}
+
+	/**
+	 * Encodes an image.
+	 * @param image The image to encode.
+	 * @return The "png" file.
+	 */
+	public byte[] encode(BufferedImage image) {
+		Bytes out = scratch.get().png;
+		out.reset();
+		int[] argb = Resampler.pixels(image);
+		try {
+			encode(argb, image.getWidth(), image.getHeight(), out);
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // A ByteArrayOutputStream never throws
+		}
+		RasterPool.release(image, argb);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Encodes the ARGB pixels of an image, and writes the "png" file to a stream.
+	 * @param argb The pixels of the image, row by row.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param out Where the "png" file is written to. This is not closed.
+	 * @throws IOException
+	 */
+	public void encode(int[] argb, int w, int h, OutputStream out) throws IOException {
+		int n = w*h;
+		boolean opaque = true, gray = true;
+		for (int i = 0; i < n; i++) {
+			int p = argb[i];
+			if ((p >>> 24) != 0xFF) opaque = false;
+			int r = (p >> 16) & 0xFF, g = (p >> 8) & 0xFF, b = p & 0xFF;
+			if (r != g || g != b) gray = false;
+		}
+		int direct = gray ? (opaque ? GRAY : GRAY_ALPHA) : (opaque ? RGB : RGBA);
+		int[] palette = palette(argb, n);
+		if (palette == null) { // Too many colors for a palette
+			write(argb, w, h, direct, null, out);
+		} else if (n > SMALL) { // Large gray images compress better filtered than as an unfiltered palette
+			write(argb, w, h, gray && palette.length > 16 ? direct : PALETTE, palette, out);
+		} else { // Small image, keep whichever is smaller
+			Scratch s = scratch.get();
+			Bytes a = s.a, b = s.b;
+			a.reset();
+			b.reset();
+			write(argb, w, h, PALETTE, palette, a);
+			write(argb, w, h, direct, null, b);
+			(a.size() <= b.size() ? a : b).writeTo(out);
+		}
+	}
+
+	/**
+	 * Starts writing an image one band of rows at a time, as RGBA. Give it every row with {@link Rows#write(int[], int, int)}, then call {@link Rows#finish()}.
+	 * <p>Compressed rows are written out in "IDAT" chunks of {@value #CHUNK} bytes as they come, so only a few rows are ever held by the encoder.
+	 * The {@code Rows} must be finished on the thread that started it, before this thread encodes anything else.</p>
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param out Where the "png" file is written to. This is not closed.
+	 * @return The rows of the image, to write to.
+	 * @throws IOException
+	 */
+	public Rows start(int w, int h, OutputStream out) throws IOException {
+		return new Rows(w, h, out);
+	}
+
+	/**
+	 * The rows of an image that is being written by {@link PngEncoder#start(int, int, OutputStream)}.
+	 */
+	public class Rows {
+		private final int w, h;
+		private final OutputStream out;
+		private final Deflater deflater = deflater();
+		private final ByteArrayOutputStream idat = new ByteArrayOutputStream(CHUNK + 8192);
+		private final byte[] buffer = new byte[8192];
+		private byte[] prev, cur;
+		private final byte[][] filtered;
+		private final long[] sums = new long[5];
+		private int y; // The number of rows written so far
+
+		private Rows(int w, int h, OutputStream out) throws IOException {
+			this.w = w;
+			this.h = h;
+			this.out = out;
+			int stride = 4*w;
+			prev = new byte[stride];
+			cur = new byte[stride];
+			filtered = new byte[5][stride+1];
+			out.write(SIGNATURE);
+			byte[] ihdr = new byte[13];
+			putInt(ihdr, 0, w);
+			putInt(ihdr, 4, h);
+			ihdr[8] = 8;
+			ihdr[9] = RGBA;
+			chunk(out, "IHDR", ihdr, ihdr.length);
+		}
+
+		/**
+		 * Writes the next rows of the image.
+		 * @param argb The ARGB pixels of the rows, row by row.
+		 * @param off The index of the first pixel in {@code argb}.
+		 * @param rows The number of rows.
+		 * @throws IOException
+		 */
+		public void write(int[] argb, int off, int rows) throws IOException {
+			if (y + rows > h) throw new IllegalStateException("The image only has " + h + " rows.");
+			for (int r = 0; r < rows; r++, y++) {
+				row(argb, off + r*w, w, RGBA, 8, null, null, cur);
+				deflater.setInput(filter(cur, prev, cur.length, 4, filtered, sums), 0, cur.length+1);
+				while (!deflater.needsInput()) idat.write(buffer, 0, deflater.deflate(buffer));
+				byte[] t = prev;
+				prev = cur;
+				cur = t;
+				if (idat.size() >= CHUNK) flush();
+			}
+		}
+
+		/**
+		 * Writes the end of the image. Every row must have been written.
+		 * @throws IOException
+		 */
+		public void finish() throws IOException {
+			if (y != h) throw new IllegalStateException("Only " + y + " of " + h + " rows were written.");
+			deflater.finish();
+			while (!deflater.finished()) idat.write(buffer, 0, deflater.deflate(buffer));
+			flush();
+			chunk(out, "IEND", new byte[0], 0);
+		}
+
+		private void flush() throws IOException {
+			if (idat.size() == 0) return;
+			byte[] data = idat.toByteArray();
+			chunk(out, "IDAT", data, data.length);
+			idat.reset();
+		}
+	}
+
+	/**
+	 * Finds every color of an image, if there are no more than 256. Colors that are not fully opaque come first, so that the "tRNS" chunk may be as short as possible.
+	 * @return The colors, or {@code null} if there are more than 256.
+	 */
+	private static int[] palette(int[] argb, int n) {
+		Scratch s = scratch.get();
+		int[] keys = s.keys, index = s.index, colors = s.colors;
+		Arrays.fill(index, -1);
+		int count = 0;
+		for (int i = 0; i < n; i++) {
+			int p = argb[i];
+			int slot = slot(keys, index, p);
+			if (index[slot] >= 0) continue; // Already known
+			if (count == 256) return null; // Too many colors for a palette
+			keys[slot] = p;
+			index[slot] = count;
+			colors[count++] = p;
+		}
+		int[] palette = new int[count];
+		int k = 0;
+		for (int i = 0; i < count; i++) if ((colors[i] >>> 24) != 0xFF) palette[k++] = colors[i]; // Translucent colors first
+		for (int i = 0; i < count; i++) if ((colors[i] >>> 24) == 0xFF) palette[k++] = colors[i];
+		return palette;
+	}
+
+	/**
+	 * Finds the slot of a color in an open addressing hash table of 1024 slots. Empty slots have an {@code index} of -1.
+	 */
+	private static int slot(int[] keys, int[] index, int p) {
+		int slot = (p*0x9E3779B9) >>> 22; // A hash of the color, between 0 and 1023
+		while (index[slot] >= 0 && keys[slot] != p) slot = (slot+1) & 1023;
+		return slot;
+	}
+
+	private void write(int[] argb, int w, int h, int type, int[] palette, OutputStream out) throws IOException {
+		int depth = 8;
+		if (type == PALETTE) depth = palette.length <= 2 ? 1 : (palette.length <= 4 ? 2 : (palette.length <= 16 ? 4 : 8));
+		int channels = type == GRAY || type == PALETTE ? 1 : (type == GRAY_ALPHA ? 2 : (type == RGB ? 3 : 4));
+		int bpp = Math.max(1, channels*depth/8); // Bytes per complete pixel, used by the filters
+		int stride = (w*channels*depth + 7)/8; // Bytes per row
+
+		out.write(SIGNATURE);
+
+		Scratch s = scratch.get();
+		byte[] ihdr = s.ihdr;
+		putInt(ihdr, 0, w);
+		putInt(ihdr, 4, h);
+		ihdr[8] = (byte) depth;
+		ihdr[9] = (byte) type;
+		// Compression, filter and interlace methods are all 0
+		chunk(out, "IHDR", ihdr, ihdr.length);
+
+		int[] keys = null, index = null; // A hash table from each color to its palette index, for palette images
+		if (type == PALETTE) {
+			byte[] plte = new byte[3*palette.length];
+			int translucent = 0;
+			for (int i = 0; i < palette.length; i++) {
+				plte[3*i] = (byte) (palette[i] >> 16);
+				plte[3*i+1] = (byte) (palette[i] >> 8);
+				plte[3*i+2] = (byte) palette[i];
+				if ((palette[i] >>> 24) != 0xFF) translucent = i+1;
+			}
+			chunk(out, "PLTE", plte, plte.length);
+			if (translucent > 0) {
+				byte[] trns = new byte[translucent];
+				for (int i = 0; i < translucent; i++) trns[i] = (byte) (palette[i] >>> 24);
+				chunk(out, "tRNS", trns, trns.length);
+			}
+			keys = s.keys;
+			index = s.index;
+			Arrays.fill(index, -1);
+			for (int i = 0; i < palette.length; i++) {
+				int slot = slot(keys, index, palette[i]);
+				keys[slot] = palette[i];
+				index[slot] = i;
+			}
+		}
+
+		Deflater deflater = deflater();
+		Bytes idat = s.idat;
+		idat.reset();
+		byte[] buffer = s.buffer;
+
+		s.rows(stride);
+		byte[] prev = s.prev;
+		byte[] cur = s.cur;
+		byte[][] filtered = s.filtered;
+		Arrays.fill(prev, 0, stride, (byte) 0); // The row above the first row is all zeros
+		for (int y = 0; y < h; y++) {
+			row(argb, y*w, w, type, depth, keys, index, cur);
+			byte[] best;
+			if (type == PALETTE) { // No filtering for palette images
+				best = filtered[0];
+				best[0] = 0;
+				System.arraycopy(cur, 0, best, 1, stride);
+			} else {
+				best = filter(cur, prev, stride, bpp, filtered, s.sums);
+			}
+			deflater.setInput(best, 0, stride+1);
+			while (!deflater.needsInput()) idat.write(buffer, 0, deflater.deflate(buffer));
+			byte[] t = prev;
+			prev = cur;
+			cur = t;
+		}
+		deflater.finish();
+		while (!deflater.finished()) idat.write(buffer, 0, deflater.deflate(buffer));
+
+		chunk(out, "IDAT", idat.buffer(), idat.size());
+		chunk(out, "IEND", buffer, 0);
+	}
+
+	/**
+	 * @return The {@link Deflater} of the current thread, ready to compress a new image.
+	 */
+	private Deflater deflater() {
+		Deflater deflater = deflaters.get();
+		if (deflater == null) {
+			deflater = new Deflater(level);
+			deflaters.set(deflater);
+		}
+		deflater.reset();
+		return deflater;
+	}
+
+	/**
+	 * Converts one row of ARGB pixels into the raw bytes of a "png" row of the given color type.
+	 */
+	private static void row(int[] argb, int start, int w, int type, int depth, int[] keys, int[] index, byte[] row) {
+		switch (type) {
+		case GRAY:
+			for (int x = 0; x < w; x++) row[x] = (byte) argb[start+x];
+			break;
+		case GRAY_ALPHA:
+			for (int x = 0; x < w; x++) {
+				int p = argb[start+x];
+				row[2*x] = (byte) p;
+				row[2*x+1] = (byte) (p >>> 24);
+			}
+			break;
+		case RGB:
+			for (int x = 0; x < w; x++) {
+				int p = argb[start+x];
+				row[3*x] = (byte) (p >> 16);
+				row[3*x+1] = (byte) (p >> 8);
+				row[3*x+2] = (byte) p;
+			}
+			break;
+		case RGBA:
+			for (int x = 0; x < w; x++) {
+				int p = argb[start+x];
+				row[4*x] = (byte) (p >> 16);
+				row[4*x+1] = (byte) (p >> 8);
+				row[4*x+2] = (byte) p;
+				row[4*x+3] = (byte) (p >>> 24);
+			}
+			break;
+		case PALETTE:
+			Arrays.fill(row, (byte) 0);
+			int perByte = 8/depth;
+			for (int x = 0; x < w; x++) {
+				int i = index[slot(keys, index, argb[start+x])];
+				int shift = 8 - depth*(x % perByte + 1); // Pixels are packed starting from the highest bits
+				row[x/perByte] |= (byte) (i << shift);
+			}
+			break;
+		}
+	}
+
+	/**
+	 * Filters the first {@code len} bytes of a row with each of the five "png" filters, and returns the one with the smallest sum of absolute values (with the filter type as its first byte).
+	 */
+	private static byte[] filter(byte[] cur, byte[] prev, int len, int bpp, byte[][] out, long[] sums) {
+		Arrays.fill(sums, 0);
+		for (int f = 0; f < 5; f++) out[f][0] = (byte) f;
+		for (int i = 0; i < len; i++) {
+			int x = cur[i] & 0xFF;
+			int a = i >= bpp ? cur[i-bpp] & 0xFF : 0; // Left
+			int b = prev[i] & 0xFF; // Up
+			int c = i >= bpp ? prev[i-bpp] & 0xFF : 0; // Up and left
+			byte none = (byte) x;
+			byte sub = (byte) (x - a);
+			byte up = (byte) (x - b);
+			byte avg = (byte) (x - ((a + b) >> 1));
+			byte paeth = (byte) (x - paeth(a, b, c));
+			out[0][i+1] = none;
+			out[1][i+1] = sub;
+			out[2][i+1] = up;
+			out[3][i+1] = avg;
+			out[4][i+1] = paeth;
+			sums[0] += Math.abs(none);
+			sums[1] += Math.abs(sub);
+			sums[2] += Math.abs(up);
+			sums[3] += Math.abs(avg);
+			sums[4] += Math.abs(paeth);
+		}
+		int best = 0;
+		for (int f = 1; f < 5; f++) if (sums[f] < sums[best]) best = f;
+		return out[best];
+	}
+
+	private static int paeth(int a, int b, int c) {
+		int p = a + b - c;
+		int pa = Math.abs(p - a), pb = Math.abs(p - b), pc = Math.abs(p - c);
+		if (pa <= pb && pa <= pc) return a;
+		if (pb <= pc) return b;
+		return c;
+	}
+
+	private static void chunk(OutputStream out, String type, byte[] data, int len) throws IOException {
+		Scratch s = scratch.get();
+		byte[] head = s.head;
+		putInt(head, 0, len);
+		for (int i = 0; i < 4; i++) head[4+i] = (byte) type.charAt(i);
+		CRC32 crc = s.crc;
+		crc.reset();
+		crc.update(head, 4, 4);
+		crc.update(data, 0, len);
+		byte[] tail = s.tail;
+		putInt(tail, 0, (int) crc.getValue());
+		out.write(head);
+		out.write(data, 0, len);
+		out.write(tail);
+	}
+
+	private static void putInt(byte[] b, int off, int v) {
+		b[off] = (byte) (v >>> 24);
+		b[off+1] = (byte) (v >>> 16);
+		b[off+2] = (byte) (v >>> 8);
+		b[off+3] = (byte) v;
+	}
+
+	/**
+	 * The buffers that a single thread encodes with, kept from one image to the next.
+	 */
+	private static class Scratch {
+		final int[] keys = new int[1024], index = new int[1024], colors = new int[256]; // See palette(int[], int)
+		final long[] sums = new long[5];
+		final byte[] ihdr = new byte[13], head = new byte[8], tail = new byte[4], buffer = new byte[8192];
+		final CRC32 crc = new CRC32();
+		final Bytes png = new Bytes(1024), a = new Bytes(256), b = new Bytes(256), idat = new Bytes(1024);
+		byte[] prev = new byte[0], cur = new byte[0];
+		byte[][] filtered = new byte[5][1];
+
+		/**
+		 * Makes the row buffers at least {@code stride} bytes long.
+		 */
+		void rows(int stride) {
+			if (prev.length >= stride) return;
+			prev = new byte[stride];
+			cur = new byte[stride];
+			filtered = new byte[5][stride+1];
+		}
+	}
+
+	/**
+	 * A {@link ByteArrayOutputStream} whose bytes may be read without copying them.
+	 */
+	private static class Bytes extends ByteArrayOutputStream {
+		Bytes(int size) {
+			super(size);
+		}
+
+		byte[] buffer() {
+			return buf;
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package main;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code RasterPool} class keeps images and {@code int[]} pixel buffers that are no longer needed, so that they may be used again instead of allocating new ones.
+ * <p>Almost every texture of a resourcepack has one of a handful of sizes (16x16, 32x32, 64x64, 256x256), so after the first few textures,
+ * the decode, resize and encode stages of the {@link Pipeline} find every buffer they need here. Buffers are kept by size and pixel type:
+ * <ul>
+ * 	<li>Each thread first looks in a pool of its own, which needs no locking. A buffer that is leased and released by the same thread (i.e. the temporary rows of the
+ * 	{@link Resampler}) never leaves it.</li>
+ * 	<li>A thread that releases more buffers of a kind than its own pool holds ({@value #LOCAL}) passes them on to a pool shared by every thread.
+ * 	This is how images move from one stage to the next: the resize stage releases the images that the decode stage leases.</li>
+ * </ul>
+ * </p>
+ * <p>Leased buffers are <strong>not</strong> cleared; the caller must write every pixel. A buffer must not be used at all after it is released.
+ * Buffers larger than {@value #LARGEST} bytes are never kept. The pool of each thread keeps at most {@value #LOCAL_BYTES} bytes, and the shared pool at most {@value #SHARED} bytes.</p>
+ */
+public class RasterPool {
+
+	private static final int LOCAL = 4; // The number of buffers of each kind that each thread keeps for itself
+	private static final long LARGEST = 4L << 20; // The largest buffer that is kept, in bytes
+	private static final long LOCAL_BYTES = 16L << 20; // The most bytes that the pool of each thread keeps
+	private static final long SHARED = 64L << 20; // The most bytes that the shared pool keeps
+
+	private static final long INTS = 0xFFL << 48; // The kind of an int[], instead of the type of an image
+
+	private static final ThreadLocal<Local> local = new ThreadLocal<Local>() {
+		protected Local initialValue() { return new Local(); }
+	};
+	private static final ConcurrentHashMap<Long, ConcurrentLinkedQueue<Object>> shared = new ConcurrentHashMap<Long, ConcurrentLinkedQueue<Object>>();
+	private static final AtomicLong sharedBytes = new AtomicLong();
+
+	private RasterPool() {
+		// Only static methods
+	}
+
+	/**
+	 * Leases an image.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param type The type of the image, i.e. {@link BufferedImage#TYPE_INT_ARGB}.
+	 * @return An image that was released before, or a new one. Its pixels may be anything.
+	 */
+	public static BufferedImage image(int w, int h, int type) {
+		BufferedImage img = (BufferedImage) lease(key(w, h, type));
+		return img != null ? img : new BufferedImage(w, h, type);
+	}
+
+	/**
+	 * Leases an {@code int[]}.
+	 * @param n The length of the array.
+	 * @return An array that was released before, or a new one. Its values may be anything.
+	 */
+	public static int[] ints(int n) {
+		int[] a = (int[]) lease(INTS | n);
+		return a != null ? a : new int[n];
+	}
+
+	/**
+	 * Releases an image, so that it may be leased again. Images that cannot be leased again (i.e. of a type that {@link #pooled(int)} does not accept,
+	 * or a part of a larger image) are left to the garbage collector.
+	 * @param img The image, or {@code null}.
+	 */
+	public static void release(BufferedImage img) {
+		if (img == null || !pooled(img.getType()) || img.getRaster().getParent() != null) return;
+		release(key(img.getWidth(), img.getHeight(), img.getType()), img, bytes(img));
+	}
+
+	/**
+	 * Releases an {@code int[]}, so that it may be leased again.
+	 * @param a The array, or {@code null}.
+	 */
+	public static void release(int[] a) {
+		if (a != null) release(INTS | a.length, a, 4L*a.length);
+	}
+
+	/**
+	 * Releases the pixels that {@link Resampler#pixels(BufferedImage)} returned for an image, unless they are the pixels of the image itself.
+	 * @param img The image.
+	 * @param pixels The pixels of the image.
+	 */
+	public static void release(BufferedImage img, int[] pixels) {
+		if (img.getRaster().getDataBuffer() instanceof DataBufferInt && ((DataBufferInt) img.getRaster().getDataBuffer()).getData() == pixels) return; // Still in use by the image
+		release(pixels);
+	}
+
+	/**
+	 * @param type The type of an image.
+	 * @return {@code true} if images of this type are kept. These are the types that {@link javax.imageio.ImageIO} decodes most "png" files to, and the type of every resized image.
+	 */
+	public static boolean pooled(int type) {
+		return type == BufferedImage.TYPE_INT_ARGB || type == BufferedImage.TYPE_4BYTE_ABGR || type == BufferedImage.TYPE_3BYTE_BGR || type == BufferedImage.TYPE_BYTE_GRAY;
+	}
+
+	private static long key(int w, int h, int type) {
+		return ((long) type << 48) | ((long) w << 24) | h;
+	}
+
+	private static Object lease(long key) {
+		Local l = local.get();
+		ArrayDeque<Object> mine = l.pools.get(key);
+		if (mine != null && !mine.isEmpty()) {
+			Object o = mine.pop();
+			l.bytes -= bytes(o);
+			return o;
+		}
+		ConcurrentLinkedQueue<Object> all = shared.get(key);
+		Object o = all == null ? null : all.poll();
+		if (o != null) sharedBytes.addAndGet(-bytes(o));
+		return o;
+	}
+
+	private static void release(long key, Object o, long bytes) {
+		if (bytes > LARGEST) return; // Rare, and would hold on to a lot of memory
+		Local l = local.get();
+		ArrayDeque<Object> mine = l.pools.get(key);
+		if (mine == null) l.pools.put(key, mine = new ArrayDeque<Object>(LOCAL));
+		if (mine.size() < LOCAL && l.bytes + bytes <= LOCAL_BYTES) {
+			mine.push(o);
+			l.bytes += bytes;
+			return;
+		}
+		if (sharedBytes.addAndGet(bytes) > SHARED) { // The shared pool is full, let the garbage collector have it
+			sharedBytes.addAndGet(-bytes);
+			return;
+		}
+		ConcurrentLinkedQueue<Object> all = shared.get(key);
+		if (all == null) {
+			ConcurrentLinkedQueue<Object> other = shared.putIfAbsent(key, all = new ConcurrentLinkedQueue<Object>());
+			if (other != null) all = other;
+		}
+		all.add(o);
+	}
+
+	/**
+	 * The pool of a single thread.
+	 */
+	private static class Local {
+		final HashMap<Long, ArrayDeque<Object>> pools = new HashMap<Long, ArrayDeque<Object>>();
+		long bytes; // The size of every buffer in (pools)
+	}
+
+	private static long bytes(Object o) {
+		if (o instanceof int[]) return 4L*((int[]) o).length;
+		BufferedImage img = (BufferedImage) o;
+		return (long) img.getWidth()*img.getHeight()*img.getColorModel().getPixelSize()/8;
+	}
+}
@@ -0,0 +1,523 @@
+package main;
+
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code Resampler} class resizes images by working directly on their {@code int[]} ARGB pixels, without going through {@link java.awt.Graphics2D}.
+ * <p>Resizing is done in two passes (first every row, then every column). Each pass uses a {@link Kernel}: a table of the source pixels and fixed-point weights
+ * that make up each output pixel. A kernel only depends on the {@link Filter}, the source length and the output length, so it is computed once and then
+ * reused for every image with the same dimensions (i.e. the thousands of 16x16 textures in a pack).</p>
+ * <p>By default, every color channel, including alpha, is blended on its own, as it is stored (sRGB, with straight, not premultiplied, alpha).
+ * This is fast, but the color of transparent pixels bleeds into their neighbours (i.e. dark fringes around leaves and glass), and blended colors come out darker than they should.</p>
+ * <p>In linear light (see {@link Main#linear_light}), every pixel is first converted to linear light and premultiplied by its alpha, then blended, then converted back.
+ * The conversions use tables instead of {@link Math#pow(double, double)}: {@value #LINEAR_BITS}-bit linear values for each 8-bit sRGB value, and the 8-bit sRGB value of every
+ * {@value #LINEAR_BITS}-bit linear value. The premultiplied values are kept as two 16-bit channels in each {@code int}, so the passes use twice the memory of the sRGB ones,
+ * and premultiplying and unpremultiplying only use integer math. Opaque pixels are converted back to exactly the sRGB value they came from.</p>
+ */
+public class Resampler {
+
+	/**
+	 * The filters that may be used to resize images.
+	 */
+	public enum Filter {
+		/**
+		 * Takes the single source pixel under the center of each output pixel. Keeps pixel art sharp, but may drop details entirely.
+		 */
+		NEAREST,
+		/**
+		 * Averages every source pixel covered by each output pixel, weighted by how much of it is covered. The best choice for shrinking pixel art by large factors.
+		 */
+		BOX,
+		/**
+		 * Blends the two closest source pixels in each direction. This is the same filter as the previous {@link java.awt.Graphics2D} based resizing;
+		 * it ignores most of the source pixels when shrinking by more than 2x.
+		 */
+		BILINEAR,
+		/**
+		 * A 3-lobed Lanczos filter, widened when shrinking. The sharpest result for smooth (not pixel art) textures, but may add slight halos around hard edges.
+		 */
+		LANCZOS;
+
+		/**
+		 * @param name The name of a filter, in any case, i.e. "{@code bilinear}".
+		 * @return The filter with that name.
+		 * @throws IllegalArgumentException If there is no filter with that name.
+		 */
+		public static Filter forName(String name) {
+			for (Filter f : values()) {
+				if (f.name().equalsIgnoreCase(name.trim())) return f;
+			}
+			throw new IllegalArgumentException("Value \"" + name + "\" for filter is invalid. filter must be one of: nearest, box, bilinear, lanczos.");
+		}
+	}
+
+	private static final int SHIFT = 14; // The number of fractional bits of every weight
+	private static final int ONE = 1 << SHIFT; // A weight of 1.0
+	private static final int HALF = 1 << (SHIFT-1); // Added before shifting, to round instead of truncating
+
+	private static final int LINEAR_BITS = 16; // The precision of linear light values
+	private static final int LINEAR_MAX = (1 << LINEAR_BITS) - 1;
+	private static final int[] TO_LINEAR = new int[256]; // The linear value of each sRGB value
+	private static final byte[] TO_SRGB = new byte[LINEAR_MAX+1]; // The sRGB value of each linear value
+
+	static {
+		for (int i = 0; i < TO_LINEAR.length; i++) {
+			double c = i/255.0;
+			TO_LINEAR[i] = (int) Math.round((c <= 0.04045 ? c/12.92 : Math.pow((c + 0.055)/1.055, 2.4))*LINEAR_MAX);
+		}
+		for (int i = 0; i < TO_SRGB.length; i++) {
+			double l = (double) i/LINEAR_MAX;
+			TO_SRGB[i] = (byte) Math.round((l <= 0.0031308 ? l*12.92 : 1.055*Math.pow(l, 1/2.4) - 0.055)*255);
+		}
+	}
+
+	private static final ConcurrentHashMap<Long, Kernel> kernels = new ConcurrentHashMap<Long, Kernel>();
+
+	/**
+	 * A {@code Kernel} lists, for each output pixel along one direction, which source pixels it is made of and with what weights.
+	 * <p>The taps of output pixel {@code i} are {@code index[offset[i]]} up to (but excluding) {@code index[offset[i+1]]}, with the matching {@code weight}s.
+	 * The weights of each output pixel add up to exactly {@code 1 << 14}.</p>
+	 */
+	static final class Kernel {
+		final int[] offset;
+		final int[] index;
+		final int[] weight;
+
+		Kernel(int[] offset, int[] index, int[] weight) {
+			this.offset = offset;
+			this.index = index;
+			this.weight = weight;
+		}
+	}
+
+	private Resampler() {
+		// Only static methods
+	}
+
+	/**
+	 * Resizes an image.
+	 * @param image The image to resize.
+	 * @param width The width of the output image.
+	 * @param height The height of the output image.
+	 * @param filter The filter to use.
+	 * @param linear Whether to blend in linear light, with premultiplied alpha. See {@link Main#linear_light}.
+	 * @return A {@link BufferedImage#TYPE_INT_ARGB} image, leased from the {@link RasterPool}. It may be {@link RasterPool#release(BufferedImage) released} once it is no longer needed.
+	 */
+	public static BufferedImage resize(BufferedImage image, int width, int height, Filter filter, boolean linear) {
+		int sw = image.getWidth();
+		int sh = image.getHeight();
+		BufferedImage out = RasterPool.image(width, height, BufferedImage.TYPE_INT_ARGB);
+		int[] src = pixels(image);
+		resize(src, sw, sh, ((DataBufferInt) out.getRaster().getDataBuffer()).getData(), width, height, filter, linear);
+		RasterPool.release(image, src);
+		return out;
+	}
+
+	/**
+	 * Resizes the ARGB pixels of an image.
+	 * @param src The pixels of the source image, row by row.
+	 * @param sw The width of the source image.
+	 * @param sh The height of the source image.
+	 * @param dst Where the pixels of the output image are written, row by row. Must hold at least {@code dw*dh} pixels.
+	 * @param dw The width of the output image.
+	 * @param dh The height of the output image.
+	 * @param filter The filter to use.
+	 * @param linear Whether to blend in linear light, with premultiplied alpha.
+	 */
+	public static void resize(int[] src, int sw, int sh, int[] dst, int dw, int dh, Filter filter, boolean linear) {
+		resize(src, 0, sw, sh, dst, 0, dw, dh, filter, linear);
+	}
+
+	/**
+	 * Resizes the ARGB pixels of an image that is a part of a larger array, i.e. one frame of an animated texture.
+	 * @param src The pixels of the source image, row by row.
+	 * @param srcOff The index of the first pixel of the source image in {@code src}.
+	 * @param sw The width of the source image.
+	 * @param sh The height of the source image.
+	 * @param dst Where the pixels of the output image are written, row by row.
+	 * @param dstOff The index in {@code dst} that the first pixel of the output image is written to.
+	 * @param dw The width of the output image.
+	 * @param dh The height of the output image.
+	 * @param filter The filter to use.
+	 * @param linear Whether to blend in linear light, with premultiplied alpha.
+	 */
+	public static void resize(int[] src, int srcOff, int sw, int sh, int[] dst, int dstOff, int dw, int dh, Filter filter, boolean linear) {
+		if (sw == dw && sh == dh) { // Nothing to do
+			System.arraycopy(src, srcOff, dst, dstOff, dw*dh);
+			return;
+		}
+		if (linear && filter != Filter.NEAREST) { // Nearest neighbour never blends, so it is the same either way
+			int[] lin = RasterPool.ints(2*sw*sh);
+			toLinear(src, srcOff, sw*sh, lin);
+			int[] tmp = RasterPool.ints(2*dw*sh);
+			passLinear(lin, 0, 2, sh, 2*sw, tmp, 0, 2, 2*dw, kernel(filter, sw, dw), 0, dw); // Resize every row
+			RasterPool.release(lin);
+			int[] out = RasterPool.ints(2*dw*dh);
+			passLinear(tmp, 0, 2*dw, dw, 2, out, 0, 2*dw, 2, kernel(filter, sh, dh), 0, dh); // Resize every column
+			RasterPool.release(tmp);
+			toSrgb(out, dw*dh, dst, dstOff);
+			RasterPool.release(out);
+			return;
+		}
+		int[] tmp = RasterPool.ints(dw*sh);
+		pass(src, srcOff, 1, sh, sw, tmp, 0, 1, dw, kernel(filter, sw, dw), 0, dw); // Resize every row
+		pass(tmp, 0, dw, dw, 1, dst, dstOff, dw, 1, kernel(filter, sh, dh), 0, dh); // Resize every column
+		RasterPool.release(tmp);
+	}
+
+	/**
+	 * Resizes a horizontal band of an image, so that a very large image may be resized without ever having all of its pixels in memory at once.
+	 * <p>Output rows {@code y0} up to (but excluding) {@code y1} are exactly the same as the same rows of {@link #resize(int[], int, int, int[], int, int, Filter)}.
+	 * The source rows they are made of are given by {@link #bandRows(int, int, int, int, Filter)}.</p>
+	 * @param src The source rows that the band is made of, row by row.
+	 * @param sw The width of the source image.
+	 * @param sh The height of the whole source image.
+	 * @param sy0 The index, in the whole source image, of the first row of {@code src}.
+	 * @param rows The number of rows in {@code src}.
+	 * @param dst Where the output rows are written, row by row, starting with row {@code y0}. Must hold at least {@code dw*(y1-y0)} pixels.
+	 * @param dw The width of the output image.
+	 * @param dh The height of the whole output image.
+	 * @param y0 The first output row of the band.
+	 * @param y1 The output row after the last one of the band.
+	 * @param filter The filter to use.
+	 * @param linear Whether to blend in linear light, with premultiplied alpha.
+	 */
+	public static void resizeBand(int[] src, int sw, int sh, int sy0, int rows, int[] dst, int dw, int dh, int y0, int y1, Filter filter, boolean linear) {
+		if (linear && filter != Filter.NEAREST) {
+			int[] lin = new int[2*sw*rows];
+			toLinear(src, 0, sw*rows, lin);
+			int[] tmp = new int[2*dw*rows];
+			passLinear(lin, 0, 2, rows, 2*sw, tmp, 0, 2, 2*dw, kernel(filter, sw, dw), 0, dw); // Resize every row of the band
+			lin = null; // Let the linear source rows go before the output rows are made
+			int[] out = new int[2*dw*(y1 - y0)];
+			passLinear(tmp, -2*sy0*dw, 2*dw, dw, 2, out, -2*y0*dw, 2*dw, 2, kernel(filter, sh, dh), y0, y1); // Resize the part of every column that is in the band
+			toSrgb(out, dw*(y1 - y0), dst, 0);
+			return;
+		}
+		int[] tmp = new int[dw*rows];
+		pass(src, 0, 1, rows, sw, tmp, 0, 1, dw, kernel(filter, sw, dw), 0, dw); // Resize every row of the band
+		pass(tmp, -sy0*dw, dw, dw, 1, dst, -y0*dw, dw, 1, kernel(filter, sh, dh), y0, y1); // Resize the part of every column that is in the band
+	}
+
+	/**
+	 * Finds the source rows that a band of output rows is made of.
+	 * @param sh The height of the whole source image.
+	 * @param dh The height of the whole output image.
+	 * @param y0 The first output row of the band.
+	 * @param y1 The output row after the last one of the band.
+	 * @param filter The filter to use.
+	 * @return The first source row, and the source row after the last one.
+	 */
+	public static int[] bandRows(int sh, int dh, int y0, int y1, Filter filter) {
+		Kernel k = kernel(filter, sh, dh);
+		int first = sh, last = 0;
+		for (int t = k.offset[y0]; t < k.offset[y1]; t++) {
+			first = Math.min(first, k.index[t]);
+			last = Math.max(last, k.index[t]+1);
+		}
+		return new int[] {first, last};
+	}
+
+	/**
+	 * Finds out if shrinking by a whole factor only copies a single source pixel into each output pixel, so that only those pixels need to be decoded
+	 * (see {@link javax.imageio.ImageReadParam#setSourceSubsampling(int, int, int, int)}).
+	 * <p>This is the case for {@link Filter#NEAREST} at any whole factor, and for {@link Filter#BILINEAR} at odd factors, where the center of every output pixel
+	 * falls exactly on a source pixel. Taking every {@code (src/dst)}th pixel, starting at the returned offset, then gives exactly the same result as {@link #resize(BufferedImage, int, int, Filter, boolean)}.
+	 * In linear light, only {@link Filter#NEAREST} does: the colors of translucent pixels come back from premultiplied linear light slightly changed.</p>
+	 * @param filter The filter to use.
+	 * @param linear Whether the image would be blended in linear light.
+	 * @param src The source length.
+	 * @param dst The output length.
+	 * @return The offset of the first source pixel to take, or -1 if {@code src} is not a multiple of {@code dst}, or if the filter blends several pixels.
+	 */
+	public static int subsampleOffset(Filter filter, boolean linear, int src, int dst) {
+		if (src % dst != 0) return -1;
+		int k = src/dst;
+		if (filter == Filter.NEAREST || (filter == Filter.BILINEAR && !linear && k % 2 == 1)) return k/2; // The pixel under the center of each output pixel
+		return -1;
+	}
+
+	/**
+	 * Gets the ARGB pixels of an image. If the image is already {@link BufferedImage#TYPE_INT_ARGB}, its own pixels are returned without copying them.
+	 * <p>The layouts that {@link javax.imageio.ImageIO} decodes most "png" files to are converted directly from their raster, since
+	 * {@link BufferedImage#getRGB(int, int, int, int, int[], int, int)} converts every pixel through the color model and is several times slower than resizing itself.</p>
+	 * <p>Gray images are read as the values stored in the file, the same way Minecraft reads them.</p>
+	 * <p>Converted pixels are leased from the {@link RasterPool}; give them back with {@link RasterPool#release(BufferedImage, int[])} once they are no longer needed.</p>
+	 */
+	static int[] pixels(BufferedImage image) {
+		int n = image.getWidth()*image.getHeight();
+		if (image.getRaster().getParent() == null) { // Not a part of a larger image, so the raster starts at 0 and has no padding
+			switch (image.getType()) {
+			case BufferedImage.TYPE_INT_ARGB:
+				return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+			case BufferedImage.TYPE_4BYTE_ABGR: {
+				byte[] b = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+				int[] p = RasterPool.ints(n);
+				for (int i = 0, j = 0; i < n; i++, j += 4) {
+					p[i] = ((b[j] & 0xFF) << 24) | ((b[j+3] & 0xFF) << 16) | ((b[j+2] & 0xFF) << 8) | (b[j+1] & 0xFF);
+				}
+				return p;
+			}
+			case BufferedImage.TYPE_3BYTE_BGR: {
+				byte[] b = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+				int[] p = RasterPool.ints(n);
+				for (int i = 0, j = 0; i < n; i++, j += 3) {
+					p[i] = 0xFF000000 | ((b[j+2] & 0xFF) << 16) | ((b[j+1] & 0xFF) << 8) | (b[j] & 0xFF);
+				}
+				return p;
+			}
+			case BufferedImage.TYPE_BYTE_INDEXED: {
+				byte[] b = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+				IndexColorModel cm = (IndexColorModel) image.getColorModel();
+				int[] palette = RasterPool.ints(256);
+				Arrays.fill(palette, 0); // Indices past the end of the palette of the file are transparent black, whatever the array held before
+				cm.getRGBs(palette);
+				int[] p = RasterPool.ints(n);
+				for (int i = 0; i < n; i++) p[i] = palette[b[i] & 0xFF];
+				RasterPool.release(palette);
+				return p;
+			}
+			}
+		}
+		if (image.getColorModel().getColorSpace().getType() == ColorSpace.TYPE_GRAY && !(image.getColorModel() instanceof IndexColorModel)) {
+			// ImageIO treats gray "png" files as linear gray, and getRGB() would brighten them. Minecraft uses the stored values as they are, so do the same.
+			Raster raster = image.getRaster();
+			int bands = raster.getNumBands(); // 1 for gray, 2 for gray with alpha
+			int max = (1 << raster.getSampleModel().getSampleSize(0)) - 1;
+			int[] samples = raster.getPixels(0, 0, image.getWidth(), image.getHeight(), RasterPool.ints(n*bands));
+			int[] p = RasterPool.ints(n);
+			for (int i = 0; i < n; i++) {
+				int g = samples[i*bands]*255/max;
+				int a = bands > 1 ? samples[i*bands+1]*255/max : 0xFF;
+				p[i] = (a << 24) | (g << 16) | (g << 8) | g;
+			}
+			RasterPool.release(samples);
+			return p;
+		}
+		return image.getRGB(0, 0, image.getWidth(), image.getHeight(), RasterPool.ints(n), 0, image.getWidth());
+	}
+
+	/**
+	 * Applies a kernel along one direction.
+	 * <p>The source has {@code lines} lines. Pixel {@code i} of line {@code l} is at {@code src[srcOff + l*lineStep + i*step]},
+	 * and output pixel {@code i} of line {@code l} is written to {@code dst[dstOff + l*dstLineStep + i*dstStep]}, for every {@code i} from {@code first} up to (but excluding) {@code last}.</p>
+	 */
+	private static void pass(int[] src, int srcOff, int step, int lines, int lineStep, int[] dst, int dstOff, int dstStep, int dstLineStep, Kernel k, int first, int last) {
+		int[] offset = k.offset;
+		int[] index = k.index;
+		int[] weight = k.weight;
+		for (int l = 0; l < lines; l++) {
+			int base = srcOff + l*lineStep;
+			int out = dstOff + l*dstLineStep;
+			for (int i = first; i < last; i++) {
+				int a = HALF, r = HALF, g = HALF, b = HALF;
+				for (int t = offset[i]; t < offset[i+1]; t++) {
+					int p = src[base + index[t]*step];
+					int w = weight[t];
+					a += (p >>> 24)*w;
+					r += ((p >> 16) & 0xFF)*w;
+					g += ((p >> 8) & 0xFF)*w;
+					b += (p & 0xFF)*w;
+				}
+				dst[out + i*dstStep] = (clamp(a >> SHIFT) << 24) | (clamp(r >> SHIFT) << 16) | (clamp(g >> SHIFT) << 8) | clamp(b >> SHIFT);
+			}
+		}
+	}
+
+	/**
+	 * Applies a kernel along one direction, to premultiplied linear light pixels, the same way as {@link #pass(int[], int, int, int, int, int[], int, int, int, Kernel, int, int)}.
+	 * <p>Each pixel is two {@code int}s: {@code (alpha << 16) | red}, then {@code (green << 16) | blue}, each a {@value #LINEAR_BITS}-bit value. Steps and offsets are counted in {@code int}s.</p>
+	 */
+	private static void passLinear(int[] src, int srcOff, int step, int lines, int lineStep, int[] dst, int dstOff, int dstStep, int dstLineStep, Kernel k, int first, int last) {
+		int[] offset = k.offset;
+		int[] index = k.index;
+		int[] weight = k.weight;
+		for (int l = 0; l < lines; l++) {
+			int base = srcOff + l*lineStep;
+			int out = dstOff + l*dstLineStep;
+			for (int i = first; i < last; i++) {
+				int a = HALF, r = HALF, g = HALF, b = HALF; // At most 65535 times the positive weights, which add up to less than 2.0 for every filter
+				for (int t = offset[i]; t < offset[i+1]; t++) {
+					int s = base + index[t]*step;
+					int ar = src[s], gb = src[s+1];
+					int w = weight[t];
+					a += (ar >>> 16)*w;
+					r += (ar & 0xFFFF)*w;
+					g += (gb >>> 16)*w;
+					b += (gb & 0xFFFF)*w;
+				}
+				a = clampLinear(a >> SHIFT);
+				int o = out + i*dstStep;
+				dst[o] = (a << 16) | Math.min(clampLinear(r >> SHIFT), a); // A premultiplied color is never more than its alpha
+				dst[o+1] = (Math.min(clampLinear(g >> SHIFT), a) << 16) | Math.min(clampLinear(b >> SHIFT), a);
+			}
+		}
+	}
+
+	/**
+	 * Converts ARGB pixels to premultiplied linear light, two {@code int}s for each pixel (see {@link #passLinear(int[], int, int, int, int, int[], int, int, int, Kernel, int, int)}).
+	 */
+	private static void toLinear(int[] src, int srcOff, int n, int[] dst) {
+		for (int i = 0, j = 0; i < n; i++, j += 2) {
+			int p = src[srcOff + i];
+			int a = p >>> 24;
+			if (a == 0xFF) { // Most pixels, nothing to premultiply
+				dst[j] = (LINEAR_MAX << 16) | TO_LINEAR[(p >> 16) & 0xFF];
+				dst[j+1] = (TO_LINEAR[(p >> 8) & 0xFF] << 16) | TO_LINEAR[p & 0xFF];
+			} else if (a == 0) { // Its color cannot be seen, and must not bleed into its neighbours
+				dst[j] = 0;
+				dst[j+1] = 0;
+			} else {
+				dst[j] = (a*257 << 16) | premultiply(TO_LINEAR[(p >> 16) & 0xFF], a);
+				dst[j+1] = (premultiply(TO_LINEAR[(p >> 8) & 0xFF], a) << 16) | premultiply(TO_LINEAR[p & 0xFF], a);
+			}
+		}
+	}
+
+	/**
+	 * @return {@code c*a/255}, rounded. {@code (c*a + 128)*257} is at most {@code 0xFFFE8B81}, so it fits in an {@code int} read as unsigned.
+	 */
+	private static int premultiply(int c, int a) {
+		return ((c*a + 128)*257) >>> 16;
+	}
+
+	/**
+	 * Converts premultiplied linear light pixels back to ARGB.
+	 */
+	private static void toSrgb(int[] src, int n, int[] dst, int dstOff) {
+		for (int i = 0, j = 0; i < n; i++, j += 2) {
+			int ar = src[j], gb = src[j+1];
+			int a = ar >>> 16;
+			int r = ar & 0xFFFF, g = gb >>> 16, b = gb & 0xFFFF;
+			if (a == 0) {
+				dst[dstOff + i] = 0;
+				continue;
+			}
+			if (a != LINEAR_MAX) { // Unpremultiply
+				long half = a >> 1;
+				r = (int) ((r*(long) LINEAR_MAX + half)/a);
+				g = (int) ((g*(long) LINEAR_MAX + half)/a);
+				b = (int) ((b*(long) LINEAR_MAX + half)/a);
+			}
+			dst[dstOff + i] = ((a + 128)/257 << 24) | ((TO_SRGB[r] & 0xFF) << 16) | ((TO_SRGB[g] & 0xFF) << 8) | (TO_SRGB[b] & 0xFF);
+		}
+	}
+
+	private static int clamp(int v) {
+		return v < 0 ? 0 : (v > 255 ? 255 : v);
+	}
+
+	private static int clampLinear(int v) {
+		return v < 0 ? 0 : (v > LINEAR_MAX ? LINEAR_MAX : v);
+	}
+
+	/**
+	 * Gets the kernel for resizing a length of {@code src} pixels to {@code dst} pixels, computing it only if it has not been used before.
+	 */
+	static Kernel kernel(Filter filter, int src, int dst) {
+		Long key = ((long) filter.ordinal() << 56) | ((long) src << 28) | dst;
+		Kernel k = kernels.get(key);
+		if (k == null) {
+			k = computeKernel(filter, src, dst);
+			Kernel other = kernels.putIfAbsent(key, k);
+			if (other != null) k = other;
+		}
+		return k;
+	}
+
+	private static Kernel computeKernel(Filter filter, int src, int dst) {
+		double scale = (double) src/dst; // The number of source pixels per output pixel
+		double filterScale = Math.max(scale, 1.0); // Filters are widened when shrinking, so that every source pixel is used
+		int[] offset = new int[dst+1];
+		int maxTaps;
+		switch (filter) {
+		case NEAREST: maxTaps = 1; break;
+		case BILINEAR: maxTaps = 2; break;
+		case BOX: maxTaps = (int) Math.ceil(scale) + 2; break;
+		default: maxTaps = (int) Math.ceil(6*filterScale) + 3; break;
+		}
+		int[] index = new int[dst*maxTaps];
+		int[] weight = new int[dst*maxTaps];
+		double[] w = new double[src];
+		int n = 0;
+		for (int i = 0; i < dst; i++) {
+			offset[i] = n;
+			double center = (i + 0.5)*scale; // The center of this output pixel, in source coordinates
+			int from = src, to = -1;
+			switch (filter) {
+			case NEAREST: {
+				int j = Math.min((int) center, src-1);
+				w[j] = 1;
+				from = to = j;
+				break;
+			}
+			case BILINEAR: {
+				double c = center - 0.5;
+				int j = (int) Math.floor(c);
+				double frac = c - j;
+				int j0 = Math.max(0, Math.min(j, src-1));
+				int j1 = Math.max(0, Math.min(j+1, src-1));
+				w[j0] += 1 - frac;
+				w[j1] += frac;
+				from = Math.min(j0, j1);
+				to = Math.max(j0, j1);
+				break;
+			}
+			case BOX: {
+				double left = i*scale, right = (i+1)*scale; // The part of the source covered by this output pixel
+				for (int j = (int) Math.floor(left); j < right && j < src; j++) {
+					double cover = Math.min(right, j+1) - Math.max(left, j);
+					if (cover <= 0) continue;
+					w[j] += cover;
+					from = Math.min(from, j);
+					to = Math.max(to, j);
+				}
+				break;
+			}
+			case LANCZOS: {
+				double support = 3*filterScale;
+				for (int j = (int) Math.floor(center - support); j <= (int) Math.ceil(center + support); j++) {
+					double x = (j + 0.5 - center)/filterScale;
+					double v = lanczos3(x);
+					if (v == 0) continue;
+					int c = Math.max(0, Math.min(j, src-1)); // Pixels past the edge repeat the edge pixel
+					w[c] += v;
+					from = Math.min(from, c);
+					to = Math.max(to, c);
+				}
+				break;
+			}
+			}
+			// Normalize the weights so that they add up to exactly ONE
+			double sum = 0;
+			for (int j = from; j <= to; j++) sum += w[j];
+			int total = 0, largest = n;
+			for (int j = from; j <= to; j++) {
+				if (w[j] == 0) continue;
+				index[n] = j;
+				weight[n] = (int) Math.round(w[j]/sum*ONE);
+				total += weight[n];
+				if (weight[n] > weight[largest]) largest = n;
+				w[j] = 0;
+				n++;
+			}
+			weight[largest] += ONE - total; // Put any rounding error on the largest weight
+		}
+		offset[dst] = n;
+		return new Kernel(offset, index, weight);
+	}
+
+	private static double lanczos3(double x) {
+		if (x == 0) return 1;
+		if (x <= -3 || x >= 3) return 0;
+		double px = Math.PI*x;
+		return 3*Math.sin(px)*Math.sin(px/3)/(px*px);
+	}
+}
@@ -0,0 +1,229 @@
+package main;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code RunReport} class collects what happened during a run, and writes it as a JSON report (see {@link Main#report}).
+ * <p>It records:
+ * <ul>
+ * 	<li>The time spent in each stage: walking the input resourcepack, decoding, resizing, encoding and writing. The time of each stage is added up over every worker thread,
+ * 	so it may be larger than the duration of the run. Writing is not counted as part of the stage that did it.</li>
+ * 	<li>The number of files, the bytes read and the bytes written for each category, i.e. "block" or "item".</li>
+ * 	<li>The slowest files, by the time that every stage spent on them.</li>
+ * 	<li>The peak size of the heap.</li>
+ * </ul>
+ * </p>
+ * <p>Every method may be called from several threads at once.</p>
+ */
+public class RunReport {
+
+	/**
+	 * The stages that time is recorded for, in the order they are written to the report.
+	 */
+	public static final String[] STAGES = {"walk", "decode", "resize", "encode", "write"};
+
+	private final Map<String, AtomicLong> times = new LinkedHashMap<String, AtomicLong>(); // Never changed after the constructor
+	private final Map<String, long[]> categories = new TreeMap<String, long[]>(); // {files, bytes read, bytes written} for each category
+	private final PriorityQueue<Slow> slowest = new PriorityQueue<Slow>(); // The slowest files, the fastest of them first
+	private final int keep; // The number of slowest files to keep
+	private final Map<String, Object> summary = new LinkedHashMap<String, Object>();
+
+	/**
+	 * @param slowest The number of slowest files to list in the report. See {@link Main#report_slowest}.
+	 */
+	public RunReport(int slowest) {
+		this.keep = slowest;
+		for (String s : STAGES) times.put(s, new AtomicLong());
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) { // Only measure the peak of this run
+			if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+		}
+	}
+
+	/**
+	 * Adds time to a stage.
+	 * @param stage One of {@link #STAGES}.
+	 * @param nanos The time, in nanoseconds.
+	 */
+	public void time(String stage, long nanos) {
+		times.get(stage).addAndGet(nanos);
+	}
+
+	/**
+	 * @param stage One of {@link #STAGES}.
+	 * @return The time spent in that stage so far, in nanoseconds.
+	 */
+	public long getTime(String stage) {
+		return times.get(stage).get();
+	}
+
+	/**
+	 * Records a file read from the input resourcepack.
+	 * @param path The location of the file, relative to the root of the resourcepack.
+	 * @param bytes The size of the file.
+	 */
+	public void read(String path, long bytes) {
+		synchronized (categories) {
+			long[] c = category(path);
+			c[0]++;
+			c[1] += bytes;
+		}
+	}
+
+	/**
+	 * Records a file written to an output resourcepack.
+	 * @param path The location of the file, relative to the root of the resourcepack.
+	 * @param bytes The size of the file.
+	 */
+	public void written(String path, long bytes) {
+		synchronized (categories) {
+			category(path)[2] += bytes;
+		}
+	}
+
+	/**
+	 * Records the time that every stage spent on a single file, once it is done.
+	 * @param path The location of the file, relative to the root of the resourcepack.
+	 * @param nanos The time, in nanoseconds.
+	 */
+	public void done(String path, long nanos) {
+		if (keep == 0) return;
+		synchronized (slowest) {
+			if (slowest.size() < keep) {
+				slowest.add(new Slow(path, nanos));
+			} else if (nanos > slowest.peek().nanos) {
+				slowest.poll();
+				slowest.add(new Slow(path, nanos));
+			}
+		}
+	}
+
+	/**
+	 * Adds a value to the top of the report, i.e. the settings of the run, or the number of files resized.
+	 * @param key The name of the value.
+	 * @param value The value, made of the types that {@link Json#write(Object)} accepts.
+	 */
+	public synchronized void put(String key, Object value) {
+		summary.put(key, value);
+	}
+
+	/**
+	 * @return The peak size of the heap since this report was created, in bytes. This is the sum of the peak of each heap pool, so it is an upper bound.
+	 */
+	public long getPeakHeap() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) peak += pool.getPeakUsage().getUsed();
+		}
+		return peak;
+	}
+
+	/**
+	 * Writes the report as JSON.
+	 * @param file The file to write to. It is replaced if it already exists.
+	 * @throws IOException
+	 */
+	public void save(File file) throws IOException {
+		File dir = file.getAbsoluteFile().getParentFile();
+		if (!dir.exists()) dir.mkdirs();
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(Json.write(toJson()).getBytes(StandardCharsets.UTF_8));
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * @return The whole report, made of the types that {@link Json#write(Object)} accepts.
+	 */
+	public synchronized Map<String, Object> toJson() {
+		Map<String, Object> root = new LinkedHashMap<String, Object>(summary);
+		Map<String, Object> t = new LinkedHashMap<String, Object>();
+		for (Map.Entry<String, AtomicLong> e : times.entrySet()) t.put(e.getKey(), millis(e.getValue().get()));
+		root.put("time_ms", t);
+		Map<String, Object> c = new LinkedHashMap<String, Object>();
+		synchronized (categories) {
+			for (Map.Entry<String, long[]> e : categories.entrySet()) {
+				Map<String, Object> m = new LinkedHashMap<String, Object>();
+				m.put("files", e.getValue()[0]);
+				m.put("bytes_in", e.getValue()[1]);
+				m.put("bytes_out", e.getValue()[2]);
+				c.put(e.getKey(), m);
+			}
+		}
+		root.put("categories", c);
+		List<Slow> slow;
+		synchronized (slowest) {
+			slow = new ArrayList<Slow>(slowest);
+		}
+		Collections.sort(slow, Collections.reverseOrder());
+		List<Object> s = new ArrayList<Object>();
+		for (Slow f : slow) {
+			Map<String, Object> m = new LinkedHashMap<String, Object>();
+			m.put("path", f.path);
+			m.put("ms", millis(f.nanos));
+			s.add(m);
+		}
+		root.put("slowest", s);
+		root.put("peak_heap_bytes", getPeakHeap());
+		return root;
+	}
+
+	/**
+	 * Finds the category of a file: the folder right inside of "textures" for a texture (i.e. "block"), or the folder right inside of the namespace otherwise (i.e. "lang").
+	 * Files that are in neither, such as "pack.png", are "other".
+	 * @param path The location of the file, relative to the root of the resourcepack.
+	 * @return The name of the category.
+	 */
+	public static String categoryOf(String path) {
+		String name = "other";
+		String[] parts = path.split("/");
+		if (parts.length >= 4 && parts[0].equals("assets")) {
+			name = parts[2];
+			if (name.equals("textures") && parts.length >= 5) name = parts[3];
+		}
+		return name;
+	}
+
+	/**
+	 * @return The counts of the category of a file. Must hold the lock on {@link #categories}.
+	 */
+	private long[] category(String path) {
+		String name = categoryOf(path);
+		long[] c = categories.get(name);
+		if (c == null) categories.put(name, c = new long[3]);
+		return c;
+	}
+
+	private static double millis(long nanos) {
+		return Math.round(nanos/1e4)/100.0;
+	}
+
+	private static class Slow implements Comparable<Slow> {
+		final String path;
+		final long nanos;
+
+		Slow(String path, long nanos) {
+			this.path = path;
+			this.nanos = nanos;
+		}
+
+		public int compareTo(Slow o) {
+			return Long.compare(nanos, o.nanos);
+		}
+	}
+}
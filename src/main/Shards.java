@@ -0,0 +1,239 @@
+package main;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The {@code Shards} class splits a single run over several processes, and merges their outputs back into a single resourcepack (see {@link Main#shards}).
+ * <p>Each process is given the same options, and a different {@link Main#shard}. It scans the whole input resourcepack (only the header of each image, see {@link Plan}),
+ * and resizes only the files of its own shard ({@link Plan#shard(int, int)}), into an output of its own, i.e. "{@code Resized Textures 16x16 (shard 2 of 4)}".
+ * A shard never writes "{@code pack.mcmeta}". Every process finds the same shards, so the shards may be run in any order, at the same time or one after another.</p>
+ * <p>{@link #merge(Options)} then moves the files of every shard into the real output, writes "{@code pack.mcmeta}", and deletes the outputs of the shards.
+ * Outputs of an earlier run that no shard wrote are deleted, the same way as {@link BuildManifest#prune(boolean)} does in a single process,
+ * so the result has exactly the same files as a run in a single process. Start it with "{@code java main.Main --merge}", followed by the same options as the shards.</p>
+ * <p>{@link #coordinate(Options)} does all of it on this computer: it starts a process for every shard, waits for all of them, and merges their outputs.
+ * This is what a run does if {@link Main#shards} is more than 1 and {@link Main#shard} is 0.</p>
+ * <p>Shards never skip unchanged files: each one writes its whole output again. If {@link Main#incremental} is {@code true}, each one still records a {@link BuildManifest},
+ * and the manifests of every shard are merged into the manifest of the output folder, so the next incremental run (in a single process or not) skips every file that has not changed.</p>
+ */
+public class Shards {
+
+	private Shards() {
+		// Only static methods
+	}
+
+	/**
+	 * @param index The shard, from 1 to {@code count}.
+	 * @param count The number of shards.
+	 * @return What is added to the name of the output of a shard, i.e. "{@code  (shard 2 of 4)}".
+	 */
+	public static String suffix(int index, int count) {
+		return " (shard " + index + " of " + count + ")";
+	}
+
+	/**
+	 * Runs every shard in a process of its own, on this computer, then merges their outputs.
+	 * <p>Each process runs {@link Main} with the same Java and class path as this one, and the same options, besides {@link Main#shard}.
+	 * If {@link Main#threads} is 0, the processors are shared out between the processes instead of each one using all of them.
+	 * Every process gets the default heap size of Java; each one only holds the images of its own shard.</p>
+	 * @param o The options of the run. {@link Main#shards} must be more than 1.
+	 * @return The report of the run, with the report of each shard (if {@link Main#report} is {@code true}).
+	 * @throws IOException If a process could not be started, or a shard failed. Nothing is merged then.
+	 */
+	public static RunReport coordinate(Options o) throws IOException {
+		long timeRun = System.currentTimeMillis();
+		RunReport runReport = new RunReport(o.report_slowest);
+		Options child = o.copy();
+		if (o.threads == 0) child.threads = (short) Math.max(1, Runtime.getRuntime().availableProcessors()/o.shards);
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+
+		// Start every shard at once
+		Process[] processes = new Process[o.shards];
+		long[] timeShard = new long[o.shards];
+		try {
+			for (int i = 0; i < o.shards; i++) {
+				child.shard = (short) (i+1);
+				List<String> command = new ArrayList<String>();
+				command.add(java);
+				command.add("-cp");
+				command.add(System.getProperty("java.class.path"));
+				command.add(Main.class.getName());
+				command.addAll(child.toArgs());
+				ProcessBuilder builder = new ProcessBuilder(command);
+				builder.directory(new File(Main.loc)); // So that relative locations are found in the same place
+				builder.inheritIO(); // Every process prints its own progress
+				processes[i] = builder.start();
+				System.out.println("Started shard " + (i+1) + " of " + o.shards + " with " + child.threads + " worker thread(s) per stage"); // Inform the user
+			}
+
+			// Wait for every shard, even if one of them fails, so that none is left writing to its output
+			ArrayList<String> failed = new ArrayList<String>();
+			for (int i = 0; i < o.shards; i++) {
+				int exit;
+				try {
+					exit = processes[i].waitFor();
+				} catch (InterruptedException e) {
+					throw new IOException("Interrupted while waiting for shard " + (i+1) + " of " + o.shards + ".", e);
+				}
+				timeShard[i] = System.currentTimeMillis() - timeRun;
+				if (exit != 0) failed.add((i+1) + " (exit code " + exit + ")");
+			}
+			if (!failed.isEmpty()) throw new IOException("Shard(s) " + String.join(", ", failed) + " of " + o.shards + " failed; the outputs were not merged.");
+		} finally {
+			for (Process p : processes) {
+				if (p != null) p.destroy(); // Only if this process gave up on it; a process that has ended is left as it is
+			}
+		}
+
+		merge(o);
+
+		// Write down everything about this run, and about each shard
+		ArrayList<Object> reportShards = new ArrayList<Object>();
+		for (int i = 0; i < o.shards; i++) {
+			Object shard = timeShard[i]/1000.0; // Only when the shard ended, if it wrote no report
+			File shardReport = new File(Main.loc + "/src/out/report" + suffix(i+1, o.shards) + ".json");
+			if (o.report && shardReport.isFile()) shard = Json.parse(new String(Files.readAllBytes(shardReport.toPath()), StandardCharsets.UTF_8)); // Written by the process of the shard
+			reportShards.add(shard);
+		}
+		ArrayList<Object> reportSizes = new ArrayList<Object>();
+		for (short s : Main.parseSizes(o.sizes, o.size)) reportSizes.add(s);
+		runReport.put("pack", o.pack);
+		runReport.put("sizes", reportSizes);
+		runReport.put("threads", (int) child.threads);
+		runReport.put("seconds", (System.currentTimeMillis() - timeRun)/1000.0);
+		runReport.put("shards", reportShards);
+		return runReport;
+	}
+
+	/**
+	 * Merges the outputs of every shard into the output of the run, writes "{@code pack.mcmeta}", and deletes the outputs of the shards.
+	 * <p>In a folder, each file is moved, not copied, and outputs of the previous run that no shard wrote are deleted (if the folder has a {@link BuildManifest}).
+	 * A ".zip" is written again from the entries of every shard, and deleted if that fails. Nothing is changed unless the output of every shard exists.</p>
+	 * @param o The options that the shards were run with. {@link Main#shard} is ignored.
+	 * @throws IOException If the output of a shard is missing, or cannot be read.
+	 * @throws IllegalArgumentException If {@link Main#shards} is 1.
+	 */
+	public static void merge(Options o) throws IOException {
+		if (o.shards < 2) throw new IllegalArgumentException("shards must be more than 1 to merge shards.");
+		short[] sizes = Main.parseSizes(o.sizes, o.size);
+
+		// Find every shard first
+		File[][] shardOutputs = new File[sizes.length][o.shards];
+		for (int i = 0; i < sizes.length; i++) {
+			for (int j = 0; j < o.shards; j++) {
+				File f = new File(Main.outputLocation(o, sizes[i], sizes.length > 1) + suffix(j+1, o.shards) + (o.zip_out ? ".zip" : ""));
+				if (!f.exists()) throw new IOException("Shard " + (j+1) + " of " + o.shards + " has not been run: " + f.getPath() + " does not exist.");
+				shardOutputs[i][j] = f;
+			}
+		}
+
+		for (int i = 0; i < sizes.length; i++) {
+			String locOut = Main.outputLocation(o, sizes[i], sizes.length > 1);
+			PackSink sink;
+			if (o.zip_out) { // Write every entry of every shard into a new ".zip"
+				sink = new ZipSink(new File(locOut + ".zip"), o.zip_level, o.fsync);
+				boolean complete = false;
+				try {
+					for (File shard : shardOutputs[i]) {
+						FileSystem zip = FileSystems.newFileSystem(shard.toPath(), (ClassLoader) null);
+						try {
+							transferAll(zip.getPath("/"), sink);
+						} finally {
+							zip.close();
+						}
+					}
+					sink.write("pack.mcmeta", Main.packMcmeta(o, sizes[i]));
+					sink.close();
+					complete = true;
+				} finally {
+					if (!complete) sink.discard(); // Leave no incomplete ".zip" behind
+				}
+				for (File shard : shardOutputs[i]) Files.delete(shard.toPath());
+			} else { // Move every file of every shard into the folder
+				File out = new File(locOut);
+				BuildManifest manifest = BuildManifest.merge(out, shardOutputs[i]); // Before the files are moved, so that the manifests of the shards are not moved as well
+				Set<String> files = new HashSet<String>();
+				for (File shard : shardOutputs[i]) moveAll(shard.toPath(), out.toPath(), files);
+				System.out.println("Number of old files deleted for " + sizes[i] + "x" + sizes[i] + ": " + manifest.prune(files, o.progress_interval == 0)); // Outputs of the previous run that no shard wrote
+				if (manifest.isEmpty()) Files.deleteIfExists(new File(out, BuildManifest.NAME).toPath()); // The shards were not incremental, and the manifest describes an earlier run
+				else manifest.save();
+				sink = new FolderSink(out, o.fsync);
+				sink.write("pack.mcmeta", Main.packMcmeta(o, sizes[i]));
+				sink.close();
+			}
+			System.out.println("Merged " + o.shards + " shards into " + locOut + (o.zip_out ? ".zip" : "")); // Inform the user
+		}
+	}
+
+	/**
+	 * Deletes a folder, and everything inside of it.
+	 * @param folder The folder. Nothing happens if it does not exist.
+	 * @throws IOException
+	 */
+	public static void delete(File folder) throws IOException {
+		if (!folder.isDirectory()) return;
+		Files.walkFileTree(folder.toPath(), new SimpleFileVisitor<Path>() {
+			public FileVisitResult visitFile(Path f, BasicFileAttributes attrs) throws IOException {
+				Files.delete(f);
+				return FileVisitResult.CONTINUE;
+			}
+
+			public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+				if (e != null) throw e;
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * Moves every file of a folder into another, replacing files that are already there, and then deletes the emptied folder.
+	 * @param moved Where to add the location of every moved file, relative to both folders, using '/' as the separator.
+	 */
+	private static void moveAll(final Path from, final Path to, final Set<String> moved) throws IOException {
+		Files.walkFileTree(from, new SimpleFileVisitor<Path>() {
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				Files.createDirectories(to.resolve(from.relativize(dir).toString()));
+				return FileVisitResult.CONTINUE;
+			}
+
+			public FileVisitResult visitFile(Path f, BasicFileAttributes attrs) throws IOException {
+				String path = from.relativize(f).toString();
+				Files.move(f, to.resolve(path), StandardCopyOption.REPLACE_EXISTING); // Replaced, not written over, like FolderSink does
+				moved.add(path.replace('\\', '/'));
+				return FileVisitResult.CONTINUE;
+			}
+
+			public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+				if (e != null) throw e;
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * Writes every file of a folder (inside of a ".zip") to a sink.
+	 */
+	private static void transferAll(final Path from, final PackSink sink) throws IOException {
+		Files.walkFileTree(from, new SimpleFileVisitor<Path>() {
+			public FileVisitResult visitFile(Path f, BasicFileAttributes attrs) throws IOException {
+				sink.transfer(from.relativize(f).toString(), f);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+}
@@ -0,0 +1,68 @@
+package main;
+
+import java.awt.Dimension;
+
+/**
+ * A {@code Target} is one output resourcepack of a run: the size that textures are resized to, and where the result is written.
+ * <p>A single run may have several targets (see {@link Main#sizes}). Every source file is then decoded once, and resized once for each target.</p>
+ */
+public class Target {
+
+	/**
+	 * The size that textures are resized to. See {@link Main#size}.
+	 */
+	public final short size;
+
+	/**
+	 * The factor that textures are scaled down by, if {@link #useScale} is {@code true}. See {@link Main#scale}.
+	 */
+	public final double scale;
+
+	/**
+	 * Whether textures are resized by {@link #scale}, or to {@code (size, size)}. See {@link Main#useScale}.
+	 */
+	public final boolean useScale;
+
+	/**
+	 * Where the output resourcepack of this target is written to.
+	 */
+	public final PackSink sink;
+
+	/**
+	 * The manifest of the output folder of this target, or {@code null} if every file should be written.
+	 */
+	public final BuildManifest manifest;
+
+	public Target(short size, boolean useScale, PackSink sink, BuildManifest manifest) {
+		this.size = size;
+		this.useScale = useScale;
+		this.scale = 16.0/size;
+		this.sink = sink;
+		this.manifest = manifest;
+	}
+
+	/**
+	 * Finds the size that an image should be resized to for this target.
+	 * <p>If {@link #useScale} is {@code true}, this is {@code (w/scale, h/scale)}, but never smaller than {@code (1, 1)}. Otherwise, this is {@code (size, size)}.</p>
+	 * @param w The width of the source image.
+	 * @param h The height of the source image.
+	 * @return The size of the output image.
+	 */
+	public Dimension outputSize(int w, int h) {
+		return outputSize(w, h, size, useScale);
+	}
+
+	/**
+	 * Finds the size that an image should be resized to, for any size and value of {@link Main#useScale}.
+	 * @see #outputSize(int, int)
+	 */
+	public static Dimension outputSize(int w, int h, short size, boolean useScale) {
+		if (useScale) { // If (useScale) is true,
+			double scale = 16.0/size;
+			w = (int) (w/scale); // Create a variable that represents the width of the output image
+			h = (int) (h/scale); // Create a variable that represents the height of the output image
+			return new Dimension((w <= 0 ? 1:w), (h <= 0 ? 1:h));
+		}
+		return new Dimension(size, size); // If (useScale) is false, every image is resized to (size, size)
+	}
+}
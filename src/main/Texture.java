@@ -0,0 +1,106 @@
+package main;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * The {@code Texture} class represents a single file of the input resourcepack while it moves through the {@link Pipeline}.
+ * <p>Each stage of the {@link Pipeline} fills in more of the fields, and clears the ones that are no longer needed so that they may be garbage collected as early as possible.</p>
+ */
+public class Texture {
+
+	/**
+	 * The {@code END} texture is sent through every queue of the {@link Pipeline} to tell each stage that no more textures will follow.
+	 */
+	public static final Texture END = new Texture(null, null);
+
+	/**
+	 * The file that this texture is read from. This may be a file on the disk, or an entry inside of a ".zip" resourcepack.
+	 */
+	public final Path source;
+
+	/**
+	 * The location of this texture, relative to the root of the resourcepack, i.e. "{@code assets/minecraft/textures/block/dirt.png}".
+	 * <p>This always uses '/' as the separator.</p>
+	 */
+	public final String path;
+
+	/**
+	 * The hash of the source file (and of its ".png.mcmeta"), from {@link BuildManifest#hash(byte[]...)}. Only set if at least one {@link Target} has a {@link BuildManifest}, or if {@link Main#dedup} is {@code true}.
+	 */
+	public String hash;
+
+	/**
+	 * Which of the targets of the {@link Pipeline} still need this file. Set by the decode stage.
+	 */
+	public boolean[] needed;
+
+	/**
+	 * The content of the ".png.mcmeta" next to this image, or {@code null} if there is none. Set by the decode stage.
+	 */
+	public byte[] mcmeta;
+
+	/**
+	 * The animation described by {@link #mcmeta}, or {@code null} if this is not an animated texture. Set by the decode stage.
+	 */
+	public Animation animation;
+
+	/**
+	 * The decoded image, before it is resized. Set by the decode stage, cleared by the resize stage.
+	 */
+	public BufferedImage img_in;
+
+	/**
+	 * The content of the source file, kept instead of {@link #img_in} for an image that is too large to resize in a single piece (see {@link Tiler}). Set by the decode stage, cleared by the resize stage.
+	 */
+	public byte[] data_in;
+
+	/**
+	 * The resized images, already encoded, one for each target of the {@link Pipeline}. Only set instead of {@link #img_out} for an image that is resized by the {@link Tiler}. Set by the resize stage, cleared by the encode stage.
+	 */
+	public byte[][] png_out;
+
+	/**
+	 * The resized images, one for each target of the {@link Pipeline} ({@code null} for targets that do not need this file). Set by the resize stage
+	 * (or by the decode stage, for an image that is decoded straight to the size of its output), cleared by the encode stage.
+	 */
+	public BufferedImage[] img_out;
+
+	/**
+	 * The rewritten ".png.mcmeta" for each target, or {@code null} where {@link #mcmeta} may be copied as it is. Set by the resize stage, cleared by the encode stage.
+	 */
+	public byte[][] mcmeta_out;
+
+	/**
+	 * The size, in bytes, of the encoded image for each target of the {@link Pipeline}, or -1 for targets that do not need it. Only set for a texture with {@link #copies},
+	 * once it has been written; copies found after that are copied from its output by the {@link PackSink}, so the encoded images themselves are never kept.
+	 */
+	public long[] size_out;
+
+	/**
+	 * The hash of the encoded image for each target that has a {@link BuildManifest}, so that copies may be recorded in it. Set together with {@link #size_out}.
+	 */
+	public String[] hash_out;
+
+	/**
+	 * Every later texture with the same content as this one, or {@code null} if this is not the first of a group of identical textures (see {@link Main#dedup}).
+	 * <p>Copies are written from the output of this texture, instead of being resized again. Access is guarded by synchronizing on this texture.</p>
+	 */
+	public List<Texture> copies;
+
+	/**
+	 * The CPU time, in nanoseconds, that every stage has spent processing this texture so far.
+	 */
+	public long cpu;
+
+	/**
+	 * The time, in nanoseconds, that every stage has spent processing this texture so far, including waiting on the disk.
+	 */
+	public long time;
+
+	public Texture(Path source, String path) {
+		this.source = source;
+		this.path = path;
+	}
+}
@@ -0,0 +1,148 @@
+package main;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * The {@code Tiler} class resizes images that are too large to resize in a single piece within {@link Main#memory_budget}, one horizontal band of output rows at a time.
+ * <p>For each band, only the source rows that the band is made of are decoded, resized with
+ * {@link Resampler#resizeBand(int[], int, int, int, int, int[], int, int, int, int, Resampler.Filter, boolean)}, and handed to a streaming {@link PngEncoder.Rows}.
+ * The pixels of the whole source image are never in memory, nor are the pixels of the whole output image; the bands are made as tall as the budget allows.
+ * The output pixels are exactly the same as if the image was resized in a single piece, but the "png" is always written as RGBA.</p>
+ * <p>Most "png" files are decoded by a {@link PngDecoder}, from the top down, once: each band keeps the source rows it shares with the previous band, and decodes only the rows after them.
+ * Other images are decoded by {@link ImageReadParam#setSourceRegion(Rectangle)}, which decodes every row above the band again for each band.</p>
+ * <p>The output "png" itself is kept in memory until it is written, as the file of every other texture is. It is compressed, so it is much smaller than its pixels,
+ * but it counts against the budget: the more of it has been encoded, the shorter the next bands are.</p>
+ */
+public class Tiler {
+
+	private Tiler() {
+		// Only static methods
+	}
+
+	/**
+	 * Opens an image for reading, without decoding any of its pixels yet.
+	 * @param data The content of the file.
+	 * @return A reader with the image as its input, or {@code null} if the file is not an image. It must be {@link ImageReader#dispose() disposed} once it is no longer needed.
+	 * @throws IOException
+	 */
+	public static ImageReader reader(byte[] data) throws IOException {
+		ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(data));
+		Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+		if (!readers.hasNext()) {
+			in.close();
+			return null;
+		}
+		ImageReader reader = readers.next();
+		reader.setInput(in, false, true); // Not seek forward only, so that the image may be read again for every band
+		return reader;
+	}
+
+	/**
+	 * Estimates the memory needed to resize an image in a single piece: the decoded image, its ARGB pixels, and for each output, the rows resized so far and the output image.
+	 * @param w The width of the source image.
+	 * @param h The height of the source image.
+	 * @param outputs The size of each output image, or {@code null} for outputs that are not needed.
+	 * @return The memory, in bytes.
+	 */
+	public static long memory(int w, int h, Dimension[] outputs) {
+		long bytes = 8L*w*h;
+		for (Dimension d : outputs) {
+			if (d != null) bytes += 4L*d.width*h + 4L*d.width*d.height;
+		}
+		return bytes;
+	}
+
+	/**
+	 * Resizes an image one band at a time, and encodes it as a "png".
+	 * @param data The content of the source file.
+	 * @param target The target to resize the image for.
+	 * @param filter The filter to use.
+	 * @param linear Whether to blend in linear light, with premultiplied alpha.
+	 * @param encoder The encoder to write the output with.
+	 * @param budget The most memory, in bytes, that a single band, together with the output encoded so far, may use. A band is always at least one output row tall, even if that is more.
+	 * @return The "png" file.
+	 * @throws IOException If the file cannot be decoded.
+	 */
+	public static byte[] resize(byte[] data, Target target, Resampler.Filter filter, boolean linear, PngEncoder encoder, long budget) throws IOException {
+		PngDecoder decoder = PngDecoder.open(data);
+		ImageReader reader = decoder == null ? reader(data) : null; // Only for images that the decoder does not read
+		if (decoder == null && reader == null) throw new IOException("Not an image.");
+		try {
+			int w = decoder != null ? decoder.getWidth() : reader.getWidth(0), h = decoder != null ? decoder.getHeight() : reader.getHeight(0);
+			Dimension out = target.outputSize(w, h);
+			ByteArrayOutputStream png = new ByteArrayOutputStream(1024);
+			PngEncoder.Rows rows = encoder.start(out.width, out.height, png);
+			int[] window = null; // The source rows of the previous band, from the decoder
+			int wy0 = 0, wy1 = 0; // The first source row of (window), and the row after its last one, which is the next row of the decoder
+			int y0 = 0;
+			while (y0 < out.height) {
+				int y1 = bandEnd(w, h, out, y0, filter, linear, budget - png.size()); // The output encoded so far is in memory too
+				int[] src = Resampler.bandRows(h, out.height, y0, y1, filter);
+				int[] argb;
+				BufferedImage band = null; // The decoded rows, from ImageIO
+				if (decoder != null) { // Keep the rows this band shares with the previous one, and decode the rest
+					argb = new int[w*(src[1] - src[0])];
+					int keep = Math.max(0, wy1 - src[0]); // Bands only move down, so these are the last rows of (window)
+					if (keep > 0) System.arraycopy(window, (src[0] - wy0)*w, argb, 0, keep*w);
+					if (src[0] > wy1) decoder.skip(src[0] - wy1); // Rows that no output row is made of
+					decoder.read(argb, keep*w, src[1] - src[0] - keep);
+					window = argb;
+					wy0 = src[0];
+					wy1 = src[1];
+				} else {
+					ImageReadParam param = reader.getDefaultReadParam();
+					param.setSourceRegion(new Rectangle(0, src[0], w, src[1] - src[0])); // Only decode the rows that this band is made of
+					band = reader.read(0, param);
+					argb = Resampler.pixels(band);
+				}
+				int[] pixels = new int[out.width*(y1 - y0)];
+				Resampler.resizeBand(argb, w, h, src[0], src[1] - src[0], pixels, out.width, out.height, y0, y1, filter, linear);
+				if (band != null) RasterPool.release(band, argb);
+				band = null; // Let the source rows go before the next band is decoded, unless they are kept in (window)
+				argb = null;
+				rows.write(pixels, 0, y1 - y0);
+				y0 = y1;
+			}
+			rows.finish();
+			return png.toByteArray();
+		} finally {
+			if (decoder != null) decoder.close();
+			if (reader != null) reader.dispose();
+		}
+	}
+
+	/**
+	 * Finds the tallest band, starting at output row {@code y0}, that fits in the budget.
+	 * @return The output row after the last one of the band.
+	 */
+	private static int bandEnd(int w, int h, Dimension out, int y0, Resampler.Filter filter, boolean linear, long budget) {
+		int lo = y0+1, hi = out.height; // (lo) always fits, or is the smallest possible band
+		if (fits(w, h, out, y0, hi, filter, linear, budget)) return hi;
+		while (hi - lo > 1) { // (hi) never fits
+			int mid = (lo + hi) >>> 1;
+			if (fits(w, h, out, y0, mid, filter, linear, budget)) lo = mid;
+			else hi = mid;
+		}
+		return lo;
+	}
+
+	private static boolean fits(int w, int h, Dimension out, int y0, int y1, Resampler.Filter filter, boolean linear, long budget) {
+		int[] src = Resampler.bandRows(h, out.height, y0, y1, filter);
+		long rows = src[1] - src[0];
+		if (linear && filter != Resampler.Filter.NEAREST) { // Every row is also held in linear light, at twice the size
+			return rows*(16L*w + 8L*out.width) + 12L*out.width*(y1 - y0) <= budget;
+		}
+		return rows*(8L*w + 4L*out.width) + 4L*out.width*(y1 - y0) <= budget; // The decoded rows and their ARGB pixels, the resized rows, and the output rows
+	}
+}
@@ -0,0 +1,238 @@
+package main;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code Watcher} class keeps the output resourcepack up to date while the input resourcepack is being edited.
+ * <p>Start it with "{@code java main.Main --watch}", followed by any options of the form "{@code name=value}" (see {@link Main#main(String[])}).
+ * The whole resourcepack is resized once, as a normal run, and then every folder of it is watched with a {@link WatchService}.
+ * When files are created, modified or deleted, only those files are handed to a new {@link Pipeline}, and only their outputs are written or deleted; the rest of the output folder is left as it is.</p>
+ * <p>Saving a file often changes it several times in a row, so changes are collected until none has come for {@link Main#watch_debounce} milliseconds
+ * (but for no longer than {@value #MAX_DEBOUNCE_FACTOR} times that, and at least {@value #MIN_MAX_DEBOUNCE} milliseconds, in total), and are then handled together.</p>
+ * <p>{@link Main#pack} must be a folder, and {@link Main#zip_out} must be {@code false}. The manifest of each output folder is kept in memory between updates,
+ * and saved after each of them (see {@link BuildManifest}), so {@link Main#incremental} is always used.</p>
+ */
+public class Watcher {
+
+	private static final long MAX_DEBOUNCE_FACTOR = 10; // Changes are collected for at most this many times watch_debounce, even if more keep coming
+	private static final long MIN_MAX_DEBOUNCE = 1000; // But always for up to this many milliseconds, so that short debounces still group a whole save
+
+	private final Options options;
+	private final Path root;
+	private final PathRules pathRules;
+	private final ExecutorService pool = Executors.newCachedThreadPool(); // Shared by every update, so that worker threads are used again
+	private final WatchService watcher;
+	private final Map<WatchKey, Path> folders = new HashMap<WatchKey, Path>(); // The folder that each key watches
+	private Target[] targets;
+
+	private Watcher(Options options, Path root) throws IOException {
+		this.options = options;
+		this.root = root;
+		this.pathRules = Main.pathRules(options);
+		this.watcher = root.getFileSystem().newWatchService();
+	}
+
+	/**
+	 * Resizes the whole resourcepack, then updates the output every time a file of the resourcepack changes, until the program is stopped.
+	 * @param options The options to resize with.
+	 * @throws IOException If the resourcepack cannot be read, or is not a folder.
+	 * @throws IllegalArgumentException If {@link Main#zip_out} or {@link Main#dry_run} is {@code true}, or if {@link Main#shards} is more than 1, or {@link Main#shard} is not 0.
+	 */
+	public static void watch(Options options) throws IOException {
+		File packFile = Main.packFile(options);
+		if (!packFile.isDirectory()) throw new IOException("The resourcepack " + packFile.getPath() + " is not a folder. Only folders can be watched.");
+		if (options.zip_out) throw new IllegalArgumentException("zip_out must be false to watch a resourcepack; a \".zip\" cannot be updated in place.");
+		if (options.dry_run) throw new IllegalArgumentException("dry_run must be false to watch a resourcepack; there would be no output to keep up to date.");
+		if (options.shards > 1 || options.shard > 0) throw new IllegalArgumentException("shards must be 1 and shard must be 0 to watch a resourcepack; every change is handled by this process.");
+		Options o = options.copy();
+		o.incremental = true; // The manifests decide which outputs belong to which files
+		new Watcher(o, packFile.toPath()).run();
+	}
+
+	private void run() throws IOException {
+		resync();
+		register(root);
+		System.out.println("Watching " + root + " for changes"); // Inform the user that the output is now kept up to date
+
+		while (true) {
+			WatchKey key;
+			try {
+				key = watcher.take(); // Wait for the first change
+			} catch (InterruptedException e) {
+				return;
+			}
+			long timeChange = System.currentTimeMillis();
+			Set<Path> changed = new LinkedHashSet<Path>();
+			Set<Path> deleted = new LinkedHashSet<Path>();
+			boolean overflow = false;
+
+			// Collect every change until none has come for (watch_debounce) milliseconds
+			long maxDebounce = Math.max(MIN_MAX_DEBOUNCE, MAX_DEBOUNCE_FACTOR*options.watch_debounce);
+			while (key != null) {
+				overflow |= collect(key, changed, deleted);
+				long left = maxDebounce - (System.currentTimeMillis() - timeChange);
+				if (left <= 0) break;
+				try {
+					key = watcher.poll(Math.min(options.watch_debounce, left), TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+
+			try {
+				if (overflow) { // Too many changes to know each of them, resize the whole resourcepack again
+					System.out.println("Too many changes at once, resizing the whole resourcepack again"); // Inform the user
+					resync();
+				} else {
+					update(changed, deleted, timeChange);
+				}
+			} catch (IOException | RuntimeException e) {
+				System.out.println("Could not update the output: " + e); // Inform the user, and keep watching
+			}
+		}
+	}
+
+	/**
+	 * Reads the changes of a single folder.
+	 * @return {@code true} if some changes were lost, because there were too many.
+	 */
+	private boolean collect(WatchKey key, Set<Path> changed, Set<Path> deleted) throws IOException {
+		Path dir = folders.get(key);
+		boolean overflow = false;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				overflow = true;
+				continue;
+			}
+			if (dir == null) continue;
+			Path f = dir.resolve((Path) event.context());
+			if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+				changed.remove(f);
+				deleted.add(f);
+			} else if (Files.isDirectory(f)) { // A new folder; watch it, and handle everything that is already in it
+				if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+					deleted.remove(f);
+					register(f);
+					addFiles(f, changed);
+				}
+			} else {
+				deleted.remove(f);
+				changed.add(f);
+			}
+		}
+		if (!key.reset()) folders.remove(key); // The folder is gone
+		return overflow;
+	}
+
+	/**
+	 * Updates the output for the files that changed.
+	 */
+	private void update(Set<Path> changed, Set<Path> deleted, long timeChange) throws IOException {
+		// Find every file to resize again; an image is resized together with its ".png.mcmeta"
+		Set<Path> files = new LinkedHashSet<Path>();
+		for (Path f : deleted) {
+			String rel = relative(f);
+			for (Target t : targets) {
+				t.manifest.remove(rel, true); // Write the name of every file, the same as for the files resized again
+				if (rel.endsWith(".png")) t.manifest.remove(rel + ".mcmeta", true);
+			}
+			if (rel.endsWith(".png.mcmeta")) changed.add(sibling(f)); // The image is no longer animated
+		}
+		for (Path f : changed) {
+			if (f.toString().endsWith(".png.mcmeta") && Files.isRegularFile(sibling(f))) f = sibling(f);
+			if (Files.isRegularFile(f) && pathRules.includes(relative(f))) files.add(f);
+		}
+
+		if (!files.isEmpty()) {
+			Options o = options.copy();
+			o.progress_interval = 0; // Write the name of every file, there are only a few
+			Pipeline pipeline = new Pipeline(root, targets, o, o.workers(), pool, new RunReport(0));
+			try {
+				pipeline.start();
+				for (Path f : files) pipeline.submit(f);
+			} catch (Throwable e) { // Still wait for the workers, but report the first error, not one that it caused
+				try {
+					pipeline.finish();
+				} catch (Throwable e2) {
+					if (e2 != e) e.addSuppressed(e2); // The pipeline rethrows the error that made submit() fail
+				}
+				throw e;
+			}
+			pipeline.finish();
+		}
+		for (Target t : targets) {
+			t.sink.flush(); // Wait for every file to be written before the manifest lists it
+			t.manifest.save();
+			t.manifest.keepAll();
+		}
+		System.out.println("Updated " + files.size() + " file(s), deleted " + deleted.size() + " file(s) in " + (System.currentTimeMillis() - timeChange) + " ms"); // Inform the user how quickly the output was updated
+	}
+
+	/**
+	 * Resizes the whole resourcepack, and loads the manifests that it wrote.
+	 */
+	private void resync() throws IOException {
+		Main.run(options, pool);
+		if (targets != null) for (Target t : targets) t.sink.close(); // Replaced by new ones
+		short[] sizes = Main.parseSizes(options.sizes, options.size);
+		targets = new Target[sizes.length];
+		for (int i = 0; i < sizes.length; i++) {
+			targets[i] = Main.createTarget(options, sizes[i], sizes.length > 1);
+			targets[i].manifest.keepAll(); // Every file that the run wrote is part of the output
+		}
+	}
+
+	/**
+	 * Watches a folder and every folder inside of it, except the ones that {@link Main#pathRules(Options)} removes.
+	 */
+	private void register(Path dir) throws IOException {
+		Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+			public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) throws IOException {
+				if (pathRules.prunes(relative(d)) != null) return FileVisitResult.SKIP_SUBTREE;
+				folders.put(d.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE), d);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * Adds every file inside of a folder.
+	 */
+	private static void addFiles(Path dir, final Set<Path> changed) throws IOException {
+		Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+			public FileVisitResult visitFile(Path f, BasicFileAttributes attrs) {
+				changed.add(f);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	private String relative(Path f) {
+		return root.relativize(f).toString().replace('\\', '/');
+	}
+
+	/**
+	 * @return The image that a ".png.mcmeta" file describes.
+	 */
+	private static Path sibling(Path meta) {
+		String name = meta.getFileName().toString();
+		return meta.resolveSibling(name.substring(0, name.length() - ".mcmeta".length()));
+	}
+}
@@ -0,0 +1,180 @@
+package main;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * The {@code ZipSink} writes every file of the output resourcepack straight into a single ".zip", without creating any temporary files.
+ * <p>The content of a ".png" is already compressed with deflate, so compressing it again only costs time. Those files are written as {@link ZipEntry#STORED} entries.
+ * Every other file (i.e. "{@code pack.mcmeta}" and ".png.mcmeta" files) is compressed with the given level.</p>
+ * <p>A ".zip" has no links. {@link #copy(String, String)} reads the entry of the original back from the ".zip" instead, so its content never has to be kept in memory.
+ * Only where the data of each entry starts in the ".zip" is remembered.</p>
+ * <p>If {@code fsync} is {@code true}, {@link #close()} forces the ".zip" to the disk once it is complete.</p>
+ */
+public class ZipSink implements PackSink {
+
+	private final ZipOutputStream zip;
+	private final FileOutputStream file;
+	private final File location;
+	private final Counter counter; // Counts the bytes written to the ".zip", to find where the data of each entry starts
+	private final boolean fsync;
+	private final Map<String, Written> written = new HashMap<String, Written>(); // Every entry written so far, guarded by (this)
+	private FileChannel reader; // Reads entries back for copy(), opened for the first copy
+	private boolean closed; // Whether the ".zip" is complete
+
+	/**
+	 * Where the data of an entry is in the ".zip".
+	 */
+	private static class Written {
+		final long offset; // The first byte of the data, after the local header
+		final ZipEntry entry; // Its method, size and compressed size, set once the entry was closed
+
+		Written(long offset, ZipEntry entry) {
+			this.offset = offset;
+			this.entry = entry;
+		}
+	}
+
+	/**
+	 * Counts every byte that passes through it.
+	 */
+	private static class Counter extends FilterOutputStream {
+		long count;
+
+		Counter(OutputStream out) {
+			super(out);
+		}
+
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+
+	/**
+	 * @param file The ".zip" to create. If it already exists, it is replaced.
+	 * @param level The compression level of entries that are not ".png" files, from 0 (fastest) to 9 (smallest).
+	 * @param fsync Whether {@link #close()} forces the ".zip" to the disk. See {@link Main#fsync}.
+	 * @throws IOException
+	 */
+	public ZipSink(File file, int level, boolean fsync) throws IOException {
+		File dir = file.getAbsoluteFile().getParentFile();
+		if (!dir.exists()) dir.mkdirs();
+		this.file = new FileOutputStream(file);
+		this.location = file;
+		this.fsync = fsync;
+		this.counter = new Counter(new BufferedOutputStream(this.file, 1 << 16));
+		this.zip = new ZipOutputStream(counter);
+		this.zip.setLevel(level);
+	}
+
+	public synchronized void write(String path, byte[] data) throws IOException {
+		ZipEntry entry = new ZipEntry(path);
+		if (path.endsWith(".png")) { // Already deflated, store it as it is
+			CRC32 crc = new CRC32();
+			crc.update(data, 0, data.length);
+			entry.setMethod(ZipEntry.STORED);
+			entry.setSize(data.length);
+			entry.setCompressedSize(data.length);
+			entry.setCrc(crc.getValue());
+		}
+		zip.putNextEntry(entry); // Writes the local header of the entry, its data starts right after it
+		written.put(path, new Written(counter.count, entry));
+		zip.write(data);
+		zip.closeEntry();
+	}
+
+	/**
+	 * Writes the entry again, with the content read back from the ".zip" (and inflated, if it was compressed).
+	 */
+	public synchronized void copy(String path, String original) throws IOException {
+		Written w = written.get(original);
+		if (w == null) throw new IOException("Cannot copy /" + original + ", it was never written.");
+		zip.flush(); // So that the data of the original is in the file
+		if (reader == null) reader = FileChannel.open(location.toPath(), StandardOpenOption.READ);
+		ByteBuffer raw = ByteBuffer.allocate((int) w.entry.getCompressedSize());
+		while (raw.hasRemaining()) {
+			if (reader.read(raw, w.offset + raw.position()) < 0) throw new IOException("The .zip ends before the data of /" + original + ".");
+		}
+		byte[] data = raw.array();
+		if (w.entry.getMethod() == ZipEntry.DEFLATED) {
+			Inflater inflater = new Inflater(true); // Entries have no zlib header
+			try {
+				inflater.setInput(data);
+				byte[] inflated = new byte[(int) w.entry.getSize()];
+				int n = 0;
+				while (n < inflated.length) {
+					int k = inflater.inflate(inflated, n, inflated.length - n);
+					if (k == 0 && (inflater.finished() || inflater.needsInput())) throw new DataFormatException("Shorter than its size");
+					n += k;
+				}
+				data = inflated;
+			} catch (DataFormatException e) {
+				throw new IOException("The data of /" + original + " cannot be read back.", e);
+			} finally {
+				inflater.end();
+			}
+		}
+		write(path, data);
+	}
+
+	public void transfer(String path, Path source) throws IOException {
+		write(path, Files.readAllBytes(source)); // The size and CRC of a stored entry must be known before it is written, and other entries are compressed again anyway
+	}
+
+	public synchronized void flush() throws IOException {
+		zip.flush();
+	}
+
+	public synchronized void close() throws IOException {
+		if (closed) return;
+		zip.finish();
+		zip.flush();
+		if (fsync) file.getChannel().force(true); // Once, now that the ".zip" is complete
+		zip.close();
+		if (reader != null) reader.close();
+		written.clear();
+		closed = true;
+	}
+
+	/**
+	 * Closes the ".zip" without finishing it, and deletes it. A ".zip" without its central directory cannot be opened.
+	 */
+	public synchronized void discard() {
+		if (closed) return;
+		closed = true;
+		try {
+			file.close(); // Not (zip), which would finish the ".zip" first
+		} catch (IOException e) {
+			// The run already failed
+		}
+		try {
+			if (reader != null) reader.close();
+		} catch (IOException e) {
+			// The run already failed
+		}
+		written.clear();
+		if (location.exists() && !location.delete()) System.out.println("Could not delete the incomplete " + location.getPath()); // Inform the user
+	}
+}